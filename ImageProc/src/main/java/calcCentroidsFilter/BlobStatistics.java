@@ -0,0 +1,264 @@
+package calcCentroidsFilter;
+
+import java.util.Arrays;
+
+/* statistics of every figure (blob) of a labeled plane, stored in primitive arrays indexed by label (1..count):
+ * - area (number of pixels) and equivalent diameter (diameter of a disc with the same area)
+ * - bounding box
+ * - mean and median position
+ * - second order central moments
+ * - the first pixel of the figure when scanning column by column, which gives the order of the figures
+ *
+ * all sums are accumulated in a single pass over the plane. The medians are taken from per-figure histograms of
+ * the x and y values over the bounding box in a second pass, so no pixel values are sorted or boxed.
+ */
+public class BlobStatistics {
+
+    private int m_Count = 0;
+
+    private int[] m_Area = new int[0];
+    private int[] m_MinX = new int[0];
+    private int[] m_MinY = new int[0];
+    private int[] m_MaxX = new int[0];
+    private int[] m_MaxY = new int[0];
+    private int[] m_FirstY = new int[0];     // smallest y in the column minX
+    private long[] m_SumX = new long[0];
+    private long[] m_SumY = new long[0];
+    private long[] m_SumXX = new long[0];
+    private long[] m_SumYY = new long[0];
+    private long[] m_SumXY = new long[0];
+    private int[] m_MedianX = new int[0];
+    private int[] m_MedianY = new int[0];
+
+    private int[] m_HistogramX = new int[0];
+    private int[] m_HistogramY = new int[0];
+    private int[] m_OffsetX = new int[0];
+    private int[] m_OffsetY = new int[0];
+
+    /**
+     * computes the statistics of all figures of the plane, replacing the previous ones
+     */
+    public void compute(ConnectedComponentLabeler.LabelPlane plane) {
+        reset(plane.count);
+        accumulate(plane);
+        computeMedians(plane);
+    }
+
+    /**
+     * frees all buffers, which are otherwise kept and reused for the next plane
+     */
+    public void release() {
+        m_Count = 0;
+        m_Area = new int[0];
+        m_MinX = new int[0];
+        m_MinY = new int[0];
+        m_MaxX = new int[0];
+        m_MaxY = new int[0];
+        m_FirstY = new int[0];
+        m_SumX = new long[0];
+        m_SumY = new long[0];
+        m_SumXX = new long[0];
+        m_SumYY = new long[0];
+        m_SumXY = new long[0];
+        m_MedianX = new int[0];
+        m_MedianY = new int[0];
+        m_HistogramX = new int[0];
+        m_HistogramY = new int[0];
+        m_OffsetX = new int[0];
+        m_OffsetY = new int[0];
+    }
+
+    private void reset(int count) {
+        m_Count = count;
+        int size = count + 1;
+        if (m_Area.length < size) {
+            m_Area = new int[size];
+            m_MinX = new int[size];
+            m_MinY = new int[size];
+            m_MaxX = new int[size];
+            m_MaxY = new int[size];
+            m_FirstY = new int[size];
+            m_SumX = new long[size];
+            m_SumY = new long[size];
+            m_SumXX = new long[size];
+            m_SumYY = new long[size];
+            m_SumXY = new long[size];
+            m_MedianX = new int[size];
+            m_MedianY = new int[size];
+            m_OffsetX = new int[size + 1];
+            m_OffsetY = new int[size + 1];
+        }
+        for (int label = 1; label <= count; label++) {
+            m_Area[label] = 0;
+            m_MinX[label] = Integer.MAX_VALUE;
+            m_MinY[label] = Integer.MAX_VALUE;
+            m_MaxX[label] = Integer.MIN_VALUE;
+            m_MaxY[label] = Integer.MIN_VALUE;
+            m_FirstY[label] = Integer.MAX_VALUE;
+            m_SumX[label] = 0;
+            m_SumY[label] = 0;
+            m_SumXX[label] = 0;
+            m_SumYY[label] = 0;
+            m_SumXY[label] = 0;
+        }
+    }
+
+    private void accumulate(ConnectedComponentLabeler.LabelPlane plane) {
+        int[] labels = plane.labels;
+        for (int y = 0; y < plane.height; y++) {
+            int row = y * plane.width;
+            for (int x = 0; x < plane.width; x++) {
+                int label = labels[row + x];
+                if (label == 0) continue;
+
+                m_Area[label]++;
+                if (x < m_MinX[label]) {
+                    m_MinX[label] = x;
+                    m_FirstY[label] = y;     // rows are visited top down, so this is the topmost pixel of the column
+                }
+                if (x > m_MaxX[label]) m_MaxX[label] = x;
+                if (y < m_MinY[label]) m_MinY[label] = y;
+                if (y > m_MaxY[label]) m_MaxY[label] = y;
+                m_SumX[label] += x;
+                m_SumY[label] += y;
+                m_SumXX[label] += (long) x * x;
+                m_SumYY[label] += (long) y * y;
+                m_SumXY[label] += (long) x * y;
+            }
+        }
+    }
+
+    private void computeMedians(ConnectedComponentLabeler.LabelPlane plane) {
+        // one histogram per figure over the extent of its bounding box, all packed into one array
+        int sizeX = 0;
+        int sizeY = 0;
+        for (int label = 1; label <= m_Count; label++) {
+            m_OffsetX[label] = sizeX;
+            m_OffsetY[label] = sizeY;
+            sizeX += m_MaxX[label] - m_MinX[label] + 1;
+            sizeY += m_MaxY[label] - m_MinY[label] + 1;
+        }
+        m_OffsetX[m_Count + 1] = sizeX;
+        m_OffsetY[m_Count + 1] = sizeY;
+
+        if (m_HistogramX.length < sizeX) m_HistogramX = new int[sizeX];
+        if (m_HistogramY.length < sizeY) m_HistogramY = new int[sizeY];
+        Arrays.fill(m_HistogramX, 0, sizeX, 0);
+        Arrays.fill(m_HistogramY, 0, sizeY, 0);
+
+        int[] labels = plane.labels;
+        for (int y = 0; y < plane.height; y++) {
+            int row = y * plane.width;
+            for (int x = 0; x < plane.width; x++) {
+                int label = labels[row + x];
+                if (label == 0) continue;
+                m_HistogramX[m_OffsetX[label] + x - m_MinX[label]]++;
+                m_HistogramY[m_OffsetY[label] + y - m_MinY[label]]++;
+            }
+        }
+
+        for (int label = 1; label <= m_Count; label++) {
+            // the median is the element at index area / 2 of the sorted values
+            m_MedianX[label] = m_MinX[label] + select(m_HistogramX, m_OffsetX[label], m_Area[label] / 2);
+            m_MedianY[label] = m_MinY[label] + select(m_HistogramY, m_OffsetY[label], m_Area[label] / 2);
+        }
+    }
+
+    /**
+     * index (relative to offset) of the bin which holds the rank-th smallest value
+     */
+    private static int select(int[] histogram, int offset, int rank) {
+        int seen = 0;
+        int bin = offset;
+        while (true) {
+            seen += histogram[bin];
+            if (seen > rank) return bin - offset;
+            bin++;
+        }
+    }
+
+    /**
+     * labels ordered by the first pixel of the figure when scanning column by column (x outer, y inner)
+     */
+    public int[] labelsInColumnOrder() {
+        Integer[] order = new Integer[m_Count];
+        for (int i = 0; i < m_Count; i++) {
+            order[i] = i + 1;
+        }
+        Arrays.sort(order, (a, b) -> m_MinX[a] != m_MinX[b] ? Integer.compare(m_MinX[a], m_MinX[b]) : Integer.compare(m_FirstY[a], m_FirstY[b]));
+
+        int[] labels = new int[m_Count];
+        for (int i = 0; i < m_Count; i++) {
+            labels[i] = order[i];
+        }
+        return labels;
+    }
+
+    public int getCount() {
+        return m_Count;
+    }
+
+    public int getArea(int label) {
+        return m_Area[label];
+    }
+
+    /**
+     * diameter of a disc with the same area as the figure
+     */
+    public double getEquivalentDiameter(int label) {
+        return Math.sqrt(4.0 * m_Area[label] / Math.PI);
+    }
+
+    public int getMinX(int label) {
+        return m_MinX[label];
+    }
+
+    public int getMinY(int label) {
+        return m_MinY[label];
+    }
+
+    public int getMaxX(int label) {
+        return m_MaxX[label];
+    }
+
+    public int getMaxY(int label) {
+        return m_MaxY[label];
+    }
+
+    public int getMedianX(int label) {
+        return m_MedianX[label];
+    }
+
+    public int getMedianY(int label) {
+        return m_MedianY[label];
+    }
+
+    public double getMeanX(int label) {
+        return (double) m_SumX[label] / m_Area[label];
+    }
+
+    public double getMeanY(int label) {
+        return (double) m_SumY[label] / m_Area[label];
+    }
+
+    /**
+     * central moment mu20 (variance of x times area)
+     */
+    public double getMu20(int label) {
+        return m_SumXX[label] - (double) m_SumX[label] * m_SumX[label] / m_Area[label];
+    }
+
+    /**
+     * central moment mu02 (variance of y times area)
+     */
+    public double getMu02(int label) {
+        return m_SumYY[label] - (double) m_SumY[label] * m_SumY[label] / m_Area[label];
+    }
+
+    /**
+     * central moment mu11 (covariance of x and y times area)
+     */
+    public double getMu11(int label) {
+        return m_SumXY[label] - (double) m_SumX[label] * m_SumY[label] / m_Area[label];
+    }
+}
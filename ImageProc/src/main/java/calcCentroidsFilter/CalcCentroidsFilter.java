@@ -1,6 +1,8 @@
 package calcCentroidsFilter;
 
 import dataContainers.Coordinate;
+import dataContainers.ImageFrame;
+import imageOps.TileExecutor;
 import pmp.filter.AbstractFilter;
 import pmp.filter.DataTransformationFilter2;
 import pmp.interfaces.Readable;
@@ -17,18 +19,18 @@ import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedList;
 
 /* this filter expects the bonding discs to be completely white: pixel value of 255 on a scale of 0..255
  * all other pixels in the image are expected to have a pixel value < 255
  * use this filter adapting eventually the package name
  */
 public class CalcCentroidsFilter extends DataTransformationFilter2<PlanarImage, ArrayList<Coordinate>> implements PropertyChangeListener {
-	private HashMap<Coordinate, Boolean> _general = new HashMap<Coordinate, Boolean>();
-	private LinkedList<ArrayList<Coordinate>> _figures = new LinkedList<ArrayList<Coordinate>>();
+	private BlobStatistics _statistics = new BlobStatistics();
 	private javax.media.jai.PlanarImage _image;
+	private int _connectivity = ConnectedComponentLabeler.FOUR_CONNECTED;
+	private ConnectedComponentLabeler _labeler = null;
+	private int[] _labels = null;     //label plane, reused for all frames of the same size
+	private TileExecutor _tileExecutor = TileExecutor.getDefault();
 	protected PropertyChangeSupport listeners = new PropertyChangeSupport(this);
 
 	public CalcCentroidsFilter(Readable<PlanarImage> input) throws InvalidParameterException {
@@ -41,78 +43,83 @@ public class CalcCentroidsFilter extends DataTransformationFilter2<PlanarImage,
 
 	public ArrayList<Coordinate> process(PlanarImage entity) {
 		_image = entity;
-		BufferedImage bi = entity.getAsBufferedImage();
-
-		for (int x = 0; x < bi.getWidth(); x++) {
-			for (int y = 0; y < bi.getHeight(); y++) {
-				int p = bi.getRaster().getSample(x, y, 0);
-				if (p == 255 && _general.containsKey(new Coordinate(x, y)) == false) {
-					getNextFigure(bi, x, y);        //if there is a not visited white pixel, save all pixels belonging to the same figure
-				}
-			}
+		BufferedImage bi = ImageFrame.of(entity).getImage();
+
+		if (_labeler == null || _labeler.getConnectivity() != _connectivity) {
+			_labeler = new ConnectedComponentLabeler(_connectivity);
+		}
+		int size = bi.getWidth() * bi.getHeight();
+		if (_labels == null || _labels.length != size) {
+			_labels = new int[size];
 		}
 
-		return calculateCentroids();    //calculate the centroids of all figures
+		ConnectedComponentLabeler.LabelPlane plane = _labeler.label(bi.getRaster(), 0, 255, _labels, _tileExecutor);
+		_statistics.compute(plane);     //replaces the statistics of the previous frame
+
+		try {
+			return calculateCentroids();    //calculate the centroids of all figures
+		} finally {
+			_image = null;
+		}
 	}
 
-	private void getNextFigure(BufferedImage img, int x, int y) {
-		ArrayList<Coordinate> figure = new ArrayList<Coordinate>();
-		_general.put(new Coordinate(x, y), true);
-		figure.add(new Coordinate(x, y));
+	/**
+	 * frees the buffers kept for the next frame; they are allocated again on demand
+	 */
+	public void release() {
+		_labels = null;
+		_labeler = null;
+		_statistics.release();
+	}
 
-		addConnectedComponents(img, figure, x, y);
+	@Override
+	protected void beforeSendingEndingSignal() {
+		release();
+	}
 
-		_figures.add(figure);
+	/**
+	 * executor for the strip-parallel labeling; TileExecutor.sequential() labels on the calling thread
+	 */
+	public void setTileExecutor(TileExecutor tileExecutor) {
+		_tileExecutor = tileExecutor;
 	}
 
-	private void addConnectedComponents(BufferedImage img, ArrayList<Coordinate> figure, int x, int y) {
-		if (x - 1 >= 0 && _general.containsKey((new Coordinate(x - 1, y))) == false && img.getRaster().getSample(x - 1, y, 0) == 255) {
-			_general.put(new Coordinate(x - 1, y), true);
-			figure.add(new Coordinate(x - 1, y));
-			addConnectedComponents(img, figure, x - 1, y);
-		}
-		if (x + 1 < img.getWidth() && _general.containsKey((new Coordinate(x + 1, y))) == false && img.getRaster().getSample(x + 1, y, 0) == 255) {
-			_general.put(new Coordinate(x + 1, y), true);
-			figure.add(new Coordinate(x + 1, y));
-			addConnectedComponents(img, figure, x + 1, y);
-		}
-		if (y - 1 >= 0 && _general.containsKey((new Coordinate(x, y - 1))) == false && img.getRaster().getSample(x, y - 1, 0) == 255) {
-			_general.put(new Coordinate(x, y - 1), true);
-			figure.add(new Coordinate(x, y - 1));
-			addConnectedComponents(img, figure, x, y - 1);
-		}
-		if (y + 1 < img.getHeight() && _general.containsKey((new Coordinate(x, y + 1))) == false && img.getRaster().getSample(x, y + 1, 0) == 255) {
-			_general.put(new Coordinate(x, y + 1), true);
-			figure.add(new Coordinate(x, y + 1));
-			addConnectedComponents(img, figure, x, y + 1);
+	public int getConnectivity() {
+		return _connectivity;
+	}
+
+	/**
+	 * 4: pixels are connected to their horizontal and vertical neighbours only, 8: also to their diagonal neighbours
+	 */
+	public void setConnectivity(int connectivity) {
+		if (connectivity != ConnectedComponentLabeler.FOUR_CONNECTED && connectivity != ConnectedComponentLabeler.EIGHT_CONNECTED) {
+			throw new InvalidParameterException("connectivity must be 4 or 8!");
 		}
+		_connectivity = connectivity;
 	}
 
+	/**
+	 * centroid of a figure: median x and median y of its pixels; diameter: equivalent diameter of its area
+	 */
 	protected ArrayList<Coordinate> calculateCentroids() {
-		ArrayList<Coordinate> centroids = new ArrayList<Coordinate>();
-		int i = 0;
-		for (ArrayList<Coordinate> figure : _figures) {
-			LinkedList<Integer> xValues = new LinkedList<Integer>();
-			LinkedList<Integer> yValues = new LinkedList<Integer>();
-
-			for (Coordinate c : figure) {
-				xValues.add(c._x);
-				yValues.add(c._y);
-			}
-
-			Collections.sort(xValues);
-			Collections.sort(yValues);
+		ArrayList<Coordinate> centroids = new ArrayList<Coordinate>(_statistics.getCount());
+		for (int label : _statistics.labelsInColumnOrder()) {
+			int xMedian = _statistics.getMedianX(label);
+			int yMedian = _statistics.getMedianY(label);
+			int diameter = (int) Math.round(_statistics.getEquivalentDiameter(label));
 
-			int xMedian = xValues.get(xValues.size() / 2);
-			int yMedian = yValues.get(yValues.size() / 2);
-
-			centroids.add(new Coordinate(xMedian + (Integer) _image.getTileGridXOffset(), yMedian + (Integer) _image.getTileGridYOffset()));
-
-			i++;
+			centroids.add(new Coordinate(xMedian + (Integer) _image.getTileGridXOffset(), yMedian + (Integer) _image.getTileGridYOffset(), diameter));
 		}
 		return centroids;
 	}
 
+	/**
+	 * statistics (area, bounding box, moments, ...) of the figures of the last processed image
+	 */
+	public BlobStatistics getStatistics() {
+		return _statistics;
+	}
+
 	/*UE3 Beans Area*/
 
 	public CalcCentroidsFilter(){}
@@ -0,0 +1,223 @@
+package calcCentroidsFilter;
+
+import imageOps.TileExecutor;
+
+import java.awt.image.Raster;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/* labels the connected components (figures) of all pixels with a given value in one band of a raster.
+ *
+ * two-pass algorithm with union-find:
+ * - first pass (row by row): every foreground pixel gets the smallest provisional label of its already visited
+ *   neighbours (or a new one), labels of touching neighbours are united
+ * - second pass: every provisional label is replaced by the consecutive final label (1..n) of its set
+ *
+ * with a parallel TileExecutor the first pass runs concurrently on horizontal strips. Every strip uses its own
+ * range of provisional labels (starting at the index of its first pixel), the labels of touching pixels on both
+ * sides of a strip boundary are united afterwards. The result is identical to the sequential one.
+ *
+ * the result is a plane of int labels (0 = background) with one entry per pixel, stored row by row.
+ * Memory is proportional to the image size, not to the number or size of the figures, and nothing is recursive.
+ */
+public class ConnectedComponentLabeler {
+
+    public static final int FOUR_CONNECTED = 4;
+    public static final int EIGHT_CONNECTED = 8;
+
+    private final int m_Connectivity;
+    private int[] m_Parent = new int[0];
+
+    public ConnectedComponentLabeler(int connectivity) throws InvalidParameterException {
+        if (connectivity != FOUR_CONNECTED && connectivity != EIGHT_CONNECTED) {
+            throw new InvalidParameterException("connectivity must be 4 or 8!");
+        }
+        m_Connectivity = connectivity;
+    }
+
+    public int getConnectivity() {
+        return m_Connectivity;
+    }
+
+    /**
+     * labels all pixels of the given band which have the value foreground, on the calling thread
+     *
+     * @param labels plane to store the labels in; a new one is allocated if it is null or too small
+     * @return the labeled plane
+     */
+    public LabelPlane label(Raster raster, int band, int foreground, int[] labels) {
+        return label(raster, band, foreground, labels, TileExecutor.sequential());
+    }
+
+    /**
+     * labels all pixels of the given band which have the value foreground, strip by strip on the executor
+     *
+     * @param labels plane to store the labels in; a new one is allocated if it is null or too small
+     * @return the labeled plane
+     */
+    public LabelPlane label(Raster raster, int band, int foreground, int[] labels, TileExecutor executor) {
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        int size = width * height;
+        if (labels == null || labels.length < size) {
+            labels = new int[size];
+        }
+        if (m_Parent.length != size + 1) {      // kept as long as the image size does not change
+            m_Parent = new int[size + 1];
+        }
+        final int[] plane = labels;
+
+        // first pass, strip by strip
+        List<int[]> strips = Collections.synchronizedList(new ArrayList<int[]>());
+        executor.forEachBand(0, height, width, (y0, y1) -> {
+            int used = labelStrip(raster, band, foreground, plane, width, y0, y1);
+            strips.add(new int[]{y0, y1, used});
+        });
+        strips.sort((a, b) -> Integer.compare(a[0], b[0]));
+
+        // unite the figures touching each other across strip boundaries
+        for (int[] strip : strips) {
+            if (strip[0] > 0) {
+                mergeBoundary(plane, width, strip[0]);
+            }
+        }
+
+        // flatten the sets: the roots get consecutive final labels (stored negated), all other labels take over
+        // the final label of their parent, which is always smaller and therefore already final
+        int count = 0;
+        for (int[] strip : strips) {
+            int base = strip[0] * width;
+            for (int label = base + 1; label <= base + strip[2]; label++) {
+                if (m_Parent[label] == label) {
+                    m_Parent[label] = -(++count);
+                } else {
+                    m_Parent[label] = m_Parent[m_Parent[label]];
+                }
+            }
+        }
+
+        executor.forEachBand(0, height, width, (y0, y1) -> {
+            for (int i = y0 * width; i < y1 * width; i++) {
+                if (plane[i] != 0) {
+                    plane[i] = -m_Parent[plane[i]];
+                }
+            }
+        });
+
+        return new LabelPlane(labels, width, height, count);
+    }
+
+    /**
+     * first pass on the rows y0 to y1. The provisional labels of the strip start after y0 * width.
+     *
+     * @return number of provisional labels used by the strip
+     */
+    private int labelStrip(Raster raster, int band, int foreground, int[] labels, int width, int y0, int y1) {
+        int[] samples = new int[width];
+        int base = y0 * width;
+        int next = base + 1;
+        for (int y = y0; y < y1; y++) {
+            raster.getSamples(raster.getMinX(), raster.getMinY() + y, width, 1, band, samples);
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                int i = row + x;
+                if (samples[x] != foreground) {
+                    labels[i] = 0;
+                    continue;
+                }
+
+                int label = 0;
+                if (x > 0) label = merge(label, labels[i - 1]);
+                if (y > y0) {
+                    label = merge(label, labels[i - width]);
+                    if (m_Connectivity == EIGHT_CONNECTED) {
+                        if (x > 0) label = merge(label, labels[i - width - 1]);
+                        if (x + 1 < width) label = merge(label, labels[i - width + 1]);
+                    }
+                }
+
+                if (label == 0) {
+                    label = next++;
+                    m_Parent[label] = label;
+                }
+                labels[i] = label;
+            }
+        }
+        return next - base - 1;
+    }
+
+    /**
+     * unites the labels of the row y with those of the row above, which belongs to another strip
+     */
+    private void mergeBoundary(int[] labels, int width, int y) {
+        int row = y * width;
+        for (int x = 0; x < width; x++) {
+            int label = labels[row + x];
+            if (label == 0) continue;
+
+            merge(label, labels[row + x - width]);
+            if (m_Connectivity == EIGHT_CONNECTED) {
+                if (x > 0) merge(label, labels[row + x - width - 1]);
+                if (x + 1 < width) merge(label, labels[row + x - width + 1]);
+            }
+        }
+    }
+
+    /**
+     * unites the label of the current pixel (0 if it has none yet) with the label of a neighbour (0 for background)
+     */
+    private int merge(int label, int neighbour) {
+        if (neighbour == 0) return label;
+        int root = find(neighbour);
+        if (label == 0) return root;
+
+        int other = find(label);
+        if (root == other) return root;
+        if (root < other) {
+            m_Parent[other] = root;
+            return root;
+        } else {
+            m_Parent[root] = other;
+            return other;
+        }
+    }
+
+    /**
+     * root of the set of the label. Roots are always the smallest label of their set.
+     */
+    private int find(int label) {
+        int root = label;
+        while (m_Parent[root] != root) {
+            root = m_Parent[root];
+        }
+        while (m_Parent[label] != root) {     // path compression
+            int parent = m_Parent[label];
+            m_Parent[label] = root;
+            label = parent;
+        }
+        return root;
+    }
+
+    /*
+     * result of the labeling: label of pixel (x, y) is labels[y * width + x], 0 is background, figures are 1..count
+     */
+    public static class LabelPlane {
+        public final int[] labels;
+        public final int width;
+        public final int height;
+        public final int count;
+
+        LabelPlane(int[] labels, int width, int height, int count) {
+            this.labels = labels;
+            this.width = width;
+            this.height = height;
+            this.count = count;
+        }
+
+        public int get(int x, int y) {
+            return labels[y * width + x];
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package dataContainers;
+
+import java.awt.image.DataBuffer;
+import java.nio.ByteBuffer;
+
+/* a DataBuffer of unsigned bytes stored in a ByteBuffer instead of a byte array, e.g. a MappedByteBuffer of a file.
+ *
+ * the buffer itself does not copy the samples to the heap, but whoever creates a compatible raster or an image from it
+ * (e.g. the image filters, or JAI through ImageFrame) gets one on the heap. Rasters on such a buffer use the
+ * generic (slower) sample access of the JDK and of JAI instead of the byte array fast paths.
+ */
+public class ByteBufferDataBuffer extends DataBuffer {
+
+	private final ByteBuffer _buffer;
+
+	/**
+	 * @param buffer samples from index 0 to size - 1 of the buffer (independent of its position)
+	 */
+	public ByteBufferDataBuffer(ByteBuffer buffer, int size) {
+		super(DataBuffer.TYPE_BYTE, size);
+		if (buffer.capacity() < size) {
+			throw new IllegalArgumentException("buffer has only " + buffer.capacity() + " bytes, " + size + " needed");
+		}
+		_buffer = buffer;
+	}
+
+	/**
+	 * the buffer with the samples; element i is at absolute index i
+	 */
+	public ByteBuffer getBuffer() {
+		return _buffer;
+	}
+
+	@Override
+	public int getElem(int bank, int i) {
+		return _buffer.get(i + offsets[bank]) & 0xFF;
+	}
+
+	@Override
+	public void setElem(int bank, int i, int val) {
+		_buffer.put(i + offsets[bank], (byte) val);
+	}
+}
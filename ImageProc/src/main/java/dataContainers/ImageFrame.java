@@ -0,0 +1,232 @@
+package dataContainers;
+
+import javax.media.jai.ImageLayout;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.RenderedImageAdapter;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/* an image passed between the image filters, giving direct access to its pixel buffer.
+ *
+ * a frame is a view on a region (ROI) of a pixel buffer: cropping a frame gives a new frame on the same buffer,
+ * nothing is copied. The PlanarImage passed through the pipes is only an adapter around the frame's BufferedImage:
+ * of(PlanarImage) unwraps it again without copying, so a chain of filters working on frames copies the pixels only
+ * where an image enters the chain (e.g. from a JAI "fileload") and where a filter creates a new image.
+ *
+ * a filter owns the frame it has read and may change its pixels in place before passing it on. Filters which need
+ * the unchanged pixels afterwards (e.g. for displaying) have to work on a copy().
+ */
+public class ImageFrame {
+
+	public enum Format {
+		BYTE_INTERLEAVED,   // one byte per sample, the samples of a pixel next to each other (gray, RGB, BGR, ABGR, ...)
+		INT_PACKED,         // one int per pixel with the samples as bit fields (RGB, ARGB)
+		OTHER               // anything else, only accessible through the BufferedImage
+	}
+
+	private final BufferedImage _image;
+	private final int _x;
+	private final int _y;
+
+	public ImageFrame(BufferedImage image) {
+		this(image, 0, 0);
+	}
+
+	private ImageFrame(BufferedImage image, int x, int y) {
+		_image = image;
+		_x = x;
+		_y = y;
+	}
+
+	/**
+	 * the frame behind a PlanarImage: without copying if the PlanarImage wraps a BufferedImage (as the ones created
+	 * by toPlanarImage() do), otherwise with one copy of the pixels
+	 */
+	public static ImageFrame of(RenderedImage image) {
+		if (image instanceof ImageFrameAdapter) {
+			return ((ImageFrameAdapter) image).getFrame();
+		}
+		if (image instanceof RenderedImageAdapter && ((RenderedImageAdapter) image).getWrappedImage() instanceof BufferedImage) {
+			return new ImageFrame((BufferedImage) ((RenderedImageAdapter) image).getWrappedImage());
+		}
+		if (image instanceof BufferedImage) {
+			return new ImageFrame((BufferedImage) image);
+		}
+		return new ImageFrame(PlanarImage.wrapRenderedImage(image).getAsBufferedImage());
+	}
+
+	/**
+	 * the frame as a PlanarImage for the pipes and JAI operations, without copying
+	 */
+	public PlanarImage toPlanarImage() {
+		return new ImageFrameAdapter(this);
+	}
+
+	/**
+	 * the pixels of the frame as BufferedImage, sharing the buffer of the frame
+	 */
+	public BufferedImage getImage() {
+		return _image;
+	}
+
+	/**
+	 * frame on the part of this frame inside the rectangle (in the coordinates of this frame), sharing the buffer
+	 */
+	public ImageFrame crop(Rectangle rectangle) {
+		Rectangle region = rectangle.intersection(new Rectangle(0, 0, getWidth(), getHeight()));
+		if (region.isEmpty()) {
+			throw new IllegalArgumentException("region " + rectangle + " is outside of the frame");
+		}
+		return new ImageFrame(_image.getSubimage(region.x, region.y, region.width, region.height), _x + region.x, _y + region.y);
+	}
+
+	/**
+	 * frame with the same size and format, with all samples 0
+	 */
+	public ImageFrame createCompatible() {
+		WritableRaster raster = _image.getRaster().createCompatibleWritableRaster();
+		return new ImageFrame(new BufferedImage(_image.getColorModel(), raster, _image.isAlphaPremultiplied(), null), _x, _y);
+	}
+
+	/**
+	 * frame with the same size, format and pixels, but an own buffer
+	 */
+	public ImageFrame copy() {
+		ImageFrame copy = createCompatible();
+		copy._image.getRaster().setRect(_image.getRaster());
+		return copy;
+	}
+
+	public int getWidth() {
+		return _image.getWidth();
+	}
+
+	public int getHeight() {
+		return _image.getHeight();
+	}
+
+	public int getNumBands() {
+		return _image.getRaster().getNumBands();
+	}
+
+	/**
+	 * region of the frame in the frame it was cropped from (over all crops)
+	 */
+	public Rectangle getRoi() {
+		return new Rectangle(_x, _y, getWidth(), getHeight());
+	}
+
+	public Format getFormat() {
+		SampleModel sm = _image.getSampleModel();
+		if (sm instanceof ComponentSampleModel && sm.getDataType() == DataBuffer.TYPE_BYTE
+				&& ((ComponentSampleModel) sm).getNumBands() == ((ComponentSampleModel) sm).getPixelStride()
+				&& _image.getRaster().getDataBuffer().getNumBanks() == 1) {
+			return Format.BYTE_INTERLEAVED;
+		}
+		if (sm instanceof SinglePixelPackedSampleModel && sm.getDataType() == DataBuffer.TYPE_INT) {
+			return Format.INT_PACKED;
+		}
+		return Format.OTHER;
+	}
+
+	/**
+	 * the whole buffer the frame is a view on: byte[] for BYTE_INTERLEAVED (a ByteBuffer if the frame is stored in
+	 * one, e.g. a memory mapped file), int[] for INT_PACKED
+	 */
+	public Object getData() {
+		DataBuffer buffer = _image.getRaster().getDataBuffer();
+		switch (getFormat()) {
+			case BYTE_INTERLEAVED:
+				if (buffer instanceof ByteBufferDataBuffer) return ((ByteBufferDataBuffer) buffer).getBuffer();
+				return ((DataBufferByte) buffer).getData();
+			case INT_PACKED: return ((DataBufferInt) buffer).getData();
+			default: throw new UnsupportedOperationException("no direct access to the buffer of format " + getFormat());
+		}
+	}
+
+	/**
+	 * index of the first sample of the pixel (0, 0) of the frame in getData()
+	 */
+	public int getOffset() {
+		WritableRaster raster = _image.getRaster();
+		return raster.getDataBuffer().getOffset()
+				- raster.getSampleModelTranslateY() * getScanlineStride()
+				- raster.getSampleModelTranslateX() * getPixelStride();
+	}
+
+	/**
+	 * distance in getData() between a pixel and the one below it
+	 */
+	public int getScanlineStride() {
+		SampleModel sm = _image.getSampleModel();
+		if (sm instanceof ComponentSampleModel) return ((ComponentSampleModel) sm).getScanlineStride();
+		if (sm instanceof SinglePixelPackedSampleModel) return ((SinglePixelPackedSampleModel) sm).getScanlineStride();
+		throw new UnsupportedOperationException("no direct access to the buffer of format " + getFormat());
+	}
+
+	/**
+	 * distance in getData() between a pixel and the one to its right
+	 */
+	public int getPixelStride() {
+		SampleModel sm = _image.getSampleModel();
+		if (sm instanceof ComponentSampleModel) return ((ComponentSampleModel) sm).getPixelStride();
+		if (sm instanceof SinglePixelPackedSampleModel) return 1;
+		throw new UnsupportedOperationException("no direct access to the buffer of format " + getFormat());
+	}
+
+	/**
+	 * position of every band within a pixel for BYTE_INTERLEAVED
+	 */
+	public int[] getBandOffsets() {
+		SampleModel sm = _image.getSampleModel();
+		if (sm instanceof ComponentSampleModel) return ((ComponentSampleModel) sm).getBandOffsets();
+		throw new UnsupportedOperationException("no band offsets for format " + getFormat());
+	}
+
+	/*
+	 * PlanarImage for a frame with the frame's raster as its only tile; remembers the frame so that of() gets it
+	 * back with its ROI. (A RenderedImageAdapter would use BufferedImage.getData(), which returns the bounds of the
+	 * whole buffer for a cropped frame.)
+	 *
+	 * JAI operations access byte rasters through their byte array, so for a frame stored in a ByteBuffer the tile
+	 * is a copy on the heap, made once per adapter.
+	 */
+	@SuppressWarnings("unchecked")     // PlanarImage.getSources() returns a raw Vector, RenderedImage a Vector<RenderedImage>
+	private static class ImageFrameAdapter extends PlanarImage {
+		private final ImageFrame _frame;
+		private volatile Raster _heapTile = null;
+
+		ImageFrameAdapter(ImageFrame frame) {
+			super(new ImageLayout(frame.getImage()), null, null);
+			_frame = frame;
+		}
+
+		ImageFrame getFrame() {
+			return _frame;
+		}
+
+		@Override
+		public Raster getTile(int tileX, int tileY) {
+			if (tileX != 0 || tileY != 0) return null;
+
+			WritableRaster raster = _frame.getImage().getRaster();
+			if (!(raster.getDataBuffer() instanceof ByteBufferDataBuffer)) return raster;
+
+			if (_heapTile == null) {
+				WritableRaster copy = raster.createCompatibleWritableRaster();
+				copy.setRect(raster);
+				_heapTile = copy;
+			}
+			return _heapTile;
+		}
+	}
+}
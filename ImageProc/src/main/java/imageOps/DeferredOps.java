@@ -0,0 +1,41 @@
+package imageOps;
+
+import javax.media.jai.ImageLayout;
+import javax.media.jai.JAI;
+import javax.media.jai.RenderedOp;
+import java.awt.RenderingHints;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.ParameterBlock;
+
+/* JAI operations which are not rendered when they are created.
+ *
+ * filters in deferred mode append their operation to the RenderedOp they have read and pass the new node on
+ * instead of pixels. The whole chain is only computed when a consumer asks for pixels, and then only for the
+ * tiles it asks for; the tiles are kept in the JAI tile cache, so a second consumer of the same node does not
+ * compute them again.
+ *
+ * the operations use tiles of TILE_SIZE x TILE_SIZE pixels, even if their source is one single tile.
+ */
+public final class DeferredOps {
+
+    public static final int TILE_SIZE = 256;
+
+    private static final RenderingHints HINTS = new RenderingHints(JAI.KEY_IMAGE_LAYOUT,
+            new ImageLayout().setTileWidth(TILE_SIZE).setTileHeight(TILE_SIZE));
+
+    private DeferredOps() {}
+
+    /**
+     * creates the operation without rendering it
+     */
+    public static RenderedOp create(String operation, ParameterBlock pb) {
+        return JAI.create(operation, pb, HINTS);
+    }
+
+    /**
+     * true if the image is a not yet (or only partly) rendered operation
+     */
+    public static boolean isDeferred(RenderedImage image) {
+        return image instanceof RenderedOp;
+    }
+}
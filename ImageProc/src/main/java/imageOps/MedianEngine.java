@@ -0,0 +1,162 @@
+package imageOps;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+/* square median filter for 8 bit images, band by band, with the same result as the JAI "MedianFilter" operation
+ * with MEDIAN_MASK_SQUARE: the pixels closer than maskSize / 2 to the edge of the image, whose mask does not fit
+ * into the image, are 0.
+ *
+ * sliding histograms after Perreault and Hebert: every column keeps a histogram of its maskSize values, which is
+ * moved down by one row with one removal and one addition. The histogram of the mask is moved right by adding the
+ * entering and subtracting the leaving column histogram. Both histograms are split into 16 coarse bins and 256
+ * fine bins; the coarse bins are always up to date, the fine bins of a coarse bin only when the median falls into
+ * it. So the cost per pixel does not depend on the mask size.
+ *
+ * the rows are split into horizontal strips which are filtered in parallel on the TileExecutor; every strip
+ * builds its own column histograms.
+ */
+public final class MedianEngine {
+
+    private static final int FINE = 256;
+    private static final int COARSE = 16;
+
+    private MedianEngine() {}
+
+    /**
+     * true if the engine can process the image, i.e. it has 8 bit samples
+     */
+    public static boolean supports(BufferedImage image) {
+        Raster raster = image.getRaster();
+        if (raster.getTransferType() != DataBuffer.TYPE_BYTE) return false;
+        for (int size : raster.getSampleModel().getSampleSize()) {
+            if (size != 8) return false;
+        }
+        return true;
+    }
+
+    public static BufferedImage apply(BufferedImage src, int maskSize, TileExecutor executor) {
+        Raster in = src.getRaster();
+        WritableRaster out = in.createCompatibleWritableRaster();
+        int width = in.getWidth();
+        int height = in.getHeight();
+
+        int[] plane = null;
+        int[] result = new int[width * height];
+        for (int band = 0; band < in.getNumBands(); band++) {
+            plane = in.getSamples(in.getMinX(), in.getMinY(), width, height, band, plane);
+            final int[] samples = plane;
+            executor.forEachBand(0, height, width, (y0, y1) -> filterStrip(samples, result, width, height, maskSize / 2, y0, y1));
+            out.setSamples(0, 0, width, height, band, result);
+        }
+
+        return new BufferedImage(src.getColorModel(), out, src.isAlphaPremultiplied(), null);
+    }
+
+    private static void filterStrip(int[] samples, int[] result, int width, int height, int radius, int y0, int y1) {
+        int size = 2 * radius + 1;
+        int rank = size * size / 2;
+        int columns = width + 2 * radius;           // radius columns of zeros on both sides
+
+        int[] columnFine = new int[columns * FINE];
+        int[] columnCoarse = new int[columns * COARSE];
+        int[] kernelFine = new int[FINE];
+        int[] kernelCoarse = new int[COARSE];
+        int[] updatedAt = new int[COARSE];          // window position the fine bins of a coarse bin belong to
+
+        for (int c = 0; c < columns; c++) {
+            int x = c - radius;
+            for (int y = y0 - radius; y <= y0 + radius; y++) {
+                add(columnFine, columnCoarse, c, sample(samples, width, height, x, y), 1);
+            }
+        }
+
+        for (int y = y0; y < y1; y++) {
+            if (y > y0) {
+                for (int x = 0; x < width; x++) {
+                    int c = x + radius;
+                    add(columnFine, columnCoarse, c, sample(samples, width, height, x, y - radius - 1), -1);
+                    add(columnFine, columnCoarse, c, sample(samples, width, height, x, y + radius), 1);
+                }
+            }
+
+            int row = y * width;
+            if (y < radius || y >= height - radius) {
+                Arrays.fill(result, row, row + width, 0);
+                continue;
+            }
+
+            Arrays.fill(kernelCoarse, 0);
+            Arrays.fill(updatedAt, -size);
+            for (int c = 0; c < size; c++) {
+                for (int k = 0; k < COARSE; k++) {
+                    kernelCoarse[k] += columnCoarse[c * COARSE + k];
+                }
+            }
+
+            for (int x = 0; x < width; x++) {
+                // the window of x covers the columns x to x + size - 1
+                if (x > 0) {
+                    int entering = (x + size - 1) * COARSE;
+                    int leaving = (x - 1) * COARSE;
+                    for (int k = 0; k < COARSE; k++) {
+                        kernelCoarse[k] += columnCoarse[entering + k] - columnCoarse[leaving + k];
+                    }
+                }
+
+                int k = 0;
+                int below = 0;
+                while (below + kernelCoarse[k] <= rank) {
+                    below += kernelCoarse[k++];
+                }
+
+                updateFine(kernelFine, columnFine, k, updatedAt[k], x, size);
+                updatedAt[k] = x;
+
+                int bin = k * COARSE;
+                while (below + kernelFine[bin] <= rank) {
+                    below += kernelFine[bin++];
+                }
+                result[row + x] = (x >= radius && x < width - radius) ? bin : 0;
+            }
+        }
+    }
+
+    /**
+     * moves the fine bins of the coarse bin k from the window at position from to the window at position to
+     */
+    private static void updateFine(int[] kernelFine, int[] columnFine, int k, int from, int to, int size) {
+        int first = k * COARSE;
+        if (to - from >= size) {
+            Arrays.fill(kernelFine, first, first + COARSE, 0);
+            for (int c = to; c < to + size; c++) {
+                addFine(kernelFine, columnFine, c, first, 1);
+            }
+        } else {
+            for (int c = from; c < to; c++) {
+                addFine(kernelFine, columnFine, c, first, -1);
+                addFine(kernelFine, columnFine, c + size, first, 1);
+            }
+        }
+    }
+
+    private static void addFine(int[] kernelFine, int[] columnFine, int column, int first, int sign) {
+        int offset = column * FINE;
+        for (int bin = first; bin < first + COARSE; bin++) {
+            kernelFine[bin] += sign * columnFine[offset + bin];
+        }
+    }
+
+    private static void add(int[] columnFine, int[] columnCoarse, int column, int value, int count) {
+        columnFine[column * FINE + value] += count;
+        columnCoarse[column * COARSE + (value >> 4)] += count;
+    }
+
+    private static int sample(int[] samples, int width, int height, int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) return 0;
+        return samples[y * width + x];
+    }
+}
@@ -0,0 +1,156 @@
+package imageOps;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+
+/* flat grey-scale erosion, dilation and opening with a disc shaped structuring element, band by band.
+ *
+ * the disc is approximated by an octagon, which is the Minkowski sum of four line segments (horizontal, vertical
+ * and both diagonals). Eroding (dilating) with the octagon is the same as eroding (dilating) with the four lines
+ * one after the other, and every line is done with the van Herk/Gil-Werman running min/max: about three
+ * comparisons per pixel and line, whatever the radius is.
+ *
+ * pixels outside of the image are ignored. All lines of one direction are independent of each other and are
+ * processed in parallel on the TileExecutor.
+ */
+public final class MorphologyEngine {
+
+    private static final int HORIZONTAL = 0;
+    private static final int VERTICAL = 1;
+    private static final int DIAGONAL = 2;          // top left to bottom right
+    private static final int ANTI_DIAGONAL = 3;     // top right to bottom left
+
+    private MorphologyEngine() {}
+
+    /**
+     * true if the engine can process the image, i.e. it has integral samples
+     */
+    public static boolean supports(BufferedImage image) {
+        int type = image.getRaster().getTransferType();
+        return type == DataBuffer.TYPE_BYTE || type == DataBuffer.TYPE_USHORT || type == DataBuffer.TYPE_SHORT || type == DataBuffer.TYPE_INT;
+    }
+
+    /**
+     * opening (erosion followed by dilation) with a disc of the given radius
+     */
+    public static BufferedImage open(BufferedImage src, int radius, TileExecutor executor) {
+        return apply(src, radius, executor, true, true);
+    }
+
+    public static BufferedImage erode(BufferedImage src, int radius, TileExecutor executor) {
+        return apply(src, radius, executor, true, false);
+    }
+
+    public static BufferedImage dilate(BufferedImage src, int radius, TileExecutor executor) {
+        return apply(src, radius, executor, false, true);
+    }
+
+    private static BufferedImage apply(BufferedImage src, int radius, TileExecutor executor, boolean erode, boolean dilate) {
+        Raster in = src.getRaster();
+        WritableRaster out = in.createCompatibleWritableRaster();
+        int width = in.getWidth();
+        int height = in.getHeight();
+
+        // octagon with the same extent as the disc along the axes and about the same along the diagonals
+        int r = Math.max(radius, 0);
+        int diagonal = (int) Math.round(r * (1 - Math.sqrt(0.5)));
+        int axis = r - 2 * diagonal;
+
+        int[] plane = null;
+        for (int band = 0; band < in.getNumBands(); band++) {
+            plane = in.getSamples(in.getMinX(), in.getMinY(), width, height, band, plane);
+            if (erode) {
+                runLines(plane, width, height, HORIZONTAL, axis, true, executor);
+                runLines(plane, width, height, VERTICAL, axis, true, executor);
+                runLines(plane, width, height, DIAGONAL, diagonal, true, executor);
+                runLines(plane, width, height, ANTI_DIAGONAL, diagonal, true, executor);
+            }
+            if (dilate) {
+                runLines(plane, width, height, HORIZONTAL, axis, false, executor);
+                runLines(plane, width, height, VERTICAL, axis, false, executor);
+                runLines(plane, width, height, DIAGONAL, diagonal, false, executor);
+                runLines(plane, width, height, ANTI_DIAGONAL, diagonal, false, executor);
+            }
+            out.setSamples(0, 0, width, height, band, plane);
+        }
+
+        return new BufferedImage(src.getColorModel(), out, src.isAlphaPremultiplied(), null);
+    }
+
+    /**
+     * running min (erode) or max over a centered window of 2 * half + 1 pixels along all lines of one direction
+     */
+    private static void runLines(int[] plane, int width, int height, int direction, int half, boolean erode, TileExecutor executor) {
+        if (half <= 0) return;
+
+        int lines;
+        switch (direction) {
+            case HORIZONTAL: lines = height; break;
+            case VERTICAL: lines = width; break;
+            default: lines = width + height - 1;
+        }
+        int maxLength = Math.max(width, height);
+
+        executor.forEachBand(0, lines, maxLength, (first, last) -> {
+            int window = 2 * half + 1;
+            int[] line = new int[maxLength + 2 * half];
+            int[] forward = new int[line.length];
+            int[] backward = new int[line.length];
+
+            for (int l = first; l < last; l++) {
+                // start pixel and step of the line l
+                int x0, y0, dx, dy;
+                switch (direction) {
+                    case HORIZONTAL: x0 = 0; y0 = l; dx = 1; dy = 0; break;
+                    case VERTICAL: x0 = l; y0 = 0; dx = 0; dy = 1; break;
+                    case DIAGONAL:
+                        x0 = Math.max(0, l - (height - 1)); y0 = Math.max(0, (height - 1) - l); dx = 1; dy = 1; break;
+                    default:
+                        x0 = Math.min(l, width - 1); y0 = Math.max(0, l - (width - 1)); dx = -1; dy = 1;
+                }
+                int length = 0;
+                for (int x = x0, y = y0; x >= 0 && x < width && y < height; x += dx, y += dy) {
+                    line[half + length++] = plane[y * width + x];
+                }
+
+                vanHerkGilWerman(line, length, half, window, erode, forward, backward);
+
+                int i = 0;
+                for (int x = x0, y = y0; i < length; x += dx, y += dy, i++) {
+                    plane[y * width + x] = line[i];
+                }
+            }
+        });
+    }
+
+    /**
+     * the values are in line[half .. half + length - 1]; the results are written to line[0 .. length - 1]
+     */
+    private static void vanHerkGilWerman(int[] line, int length, int half, int window, boolean erode, int[] forward, int[] backward) {
+        int padding = erode ? Integer.MAX_VALUE : Integer.MIN_VALUE;
+        int total = length + 2 * half;
+        for (int i = 0; i < half; i++) {
+            line[i] = padding;
+            line[half + length + i] = padding;
+        }
+
+        // forward: running min/max from the start of each block, backward: from the end of each block
+        for (int i = 0; i < total; i++) {
+            forward[i] = (i % window == 0) ? line[i] : pick(forward[i - 1], line[i], erode);
+        }
+        for (int i = total - 1; i >= 0; i--) {
+            backward[i] = (i == total - 1 || (i + 1) % window == 0) ? line[i] : pick(backward[i + 1], line[i], erode);
+        }
+
+        // window [i, i + window - 1] covers the end of one block and the start of the next one
+        for (int i = 0; i < length; i++) {
+            line[i] = pick(backward[i], forward[i + window - 1], erode);
+        }
+    }
+
+    private static int pick(int a, int b, boolean min) {
+        return min ? Math.min(a, b) : Math.max(a, b);
+    }
+}
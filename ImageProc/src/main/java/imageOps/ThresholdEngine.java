@@ -0,0 +1,151 @@
+package imageOps;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/* sets every pixel whose luminance is <= threshold to white, in place.
+ *
+ * luminance = (0.2126 * red + 0.7152 * green + 0.0722 * blue) / 255
+ *
+ * for 8 bit interleaved and int packed sRGB images the pixels are read and written directly in the DataBuffer,
+ * row by row, with a precomputed luminance contribution per channel value. All other color models (e.g. gray,
+ * indexed, premultiplied alpha) take the generic but slow getRGB/setRGB path.
+ * Both paths give exactly the same result.
+ */
+public final class ThresholdEngine {
+
+    private static final float[] RED = new float[256];
+    private static final float[] GREEN = new float[256];
+    private static final float[] BLUE = new float[256];
+
+    static {
+        for (int v = 0; v < 256; v++) {
+            RED[v] = v * 0.2126f;
+            GREEN[v] = v * 0.7152f;
+            BLUE[v] = v * 0.0722f;
+        }
+    }
+
+    private ThresholdEngine() {}
+
+    public static void apply(BufferedImage image, float threshold, TileExecutor executor) {
+        if (!applyInterleavedBytes(image, threshold, executor) && !applyPackedInts(image, threshold, executor)) {
+            applyGeneric(image, threshold, executor);
+        }
+    }
+
+    private static boolean isDark(int red, int green, int blue, float threshold) {
+        return (RED[red] + GREEN[green] + BLUE[blue]) / 255 <= threshold;
+    }
+
+    private static boolean applyInterleavedBytes(BufferedImage image, float threshold, TileExecutor executor) {
+        ColorModel cm = image.getColorModel();
+        WritableRaster raster = image.getRaster();
+        if (!(cm instanceof ComponentColorModel) || !cm.getColorSpace().isCS_sRGB() || cm.isAlphaPremultiplied()
+                || cm.getTransferType() != DataBuffer.TYPE_BYTE
+                || !(raster.getSampleModel() instanceof PixelInterleavedSampleModel)
+                || !(raster.getDataBuffer() instanceof DataBufferByte)
+                || raster.getNumBands() < 3 || raster.getNumBands() > 4) {
+            return false;
+        }
+
+        PixelInterleavedSampleModel sm = (PixelInterleavedSampleModel) raster.getSampleModel();
+        byte[] data = ((DataBufferByte) raster.getDataBuffer()).getData();
+        int[] bandOffsets = sm.getBandOffsets();
+        int pixelStride = sm.getPixelStride();
+        int scanlineStride = sm.getScanlineStride();
+        int bands = raster.getNumBands();
+        byte[] white = (byte[]) cm.getDataElements(0xFFFFFFFF, null);
+
+        int base = raster.getDataBuffer().getOffset()
+                - raster.getSampleModelTranslateY() * scanlineStride
+                - raster.getSampleModelTranslateX() * pixelStride;
+        int minX = raster.getMinX();
+        int width = raster.getWidth();
+        int offR = bandOffsets[0];
+        int offG = bandOffsets[1];
+        int offB = bandOffsets[2];
+
+        executor.forEachBand(raster.getMinY(), raster.getHeight(), width, (y0, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                int pixel = base + y * scanlineStride + minX * pixelStride;
+                for (int x = 0; x < width; x++, pixel += pixelStride) {
+                    if (isDark(data[pixel + offR] & 0xFF, data[pixel + offG] & 0xFF, data[pixel + offB] & 0xFF, threshold)) {
+                        for (int b = 0; b < bands; b++) {
+                            data[pixel + bandOffsets[b]] = white[b];
+                        }
+                    }
+                }
+            }
+        });
+        return true;
+    }
+
+    private static boolean applyPackedInts(BufferedImage image, float threshold, TileExecutor executor) {
+        ColorModel cm = image.getColorModel();
+        WritableRaster raster = image.getRaster();
+        if (!(cm instanceof DirectColorModel) || !cm.getColorSpace().isCS_sRGB() || cm.isAlphaPremultiplied()
+                || !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)
+                || !(raster.getDataBuffer() instanceof DataBufferInt)) {
+            return false;
+        }
+        DirectColorModel dcm = (DirectColorModel) cm;
+        if (dcm.getRedMask() != 0x00FF0000 || dcm.getGreenMask() != 0x0000FF00 || dcm.getBlueMask() != 0x000000FF) {
+            return false;
+        }
+
+        SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) raster.getSampleModel();
+        int[] data = ((DataBufferInt) raster.getDataBuffer()).getData();
+        int scanlineStride = sm.getScanlineStride();
+        int white = ((int[]) cm.getDataElements(0xFFFFFFFF, null))[0];
+
+        int base = raster.getDataBuffer().getOffset()
+                - raster.getSampleModelTranslateY() * scanlineStride
+                - raster.getSampleModelTranslateX();
+        int minX = raster.getMinX();
+        int width = raster.getWidth();
+
+        executor.forEachBand(raster.getMinY(), raster.getHeight(), width, (y0, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                int pixel = base + y * scanlineStride + minX;
+                for (int x = 0; x < width; x++, pixel++) {
+                    int color = data[pixel];
+                    if (isDark((color >>> 16) & 0xFF, (color >>> 8) & 0xFF, color & 0xFF, threshold)) {
+                        data[pixel] = white;
+                    }
+                }
+            }
+        });
+        return true;
+    }
+
+    private static void applyGeneric(BufferedImage image, float threshold, TileExecutor executor) {
+        int width = image.getWidth();
+
+        executor.forEachBand(0, image.getHeight(), width, (y0, y1) -> {
+            for (int y = y0; y < y1; y++) {
+                for (int x = 0; x < width; x++) {
+                    int color = image.getRGB(x, y);
+
+                    int red = (color >>> 16) & 0xFF;
+                    int green = (color >>> 8) & 0xFF;
+                    int blue = (color) & 0xFF;
+
+                    float brightness = (red * 0.2126f + green * 0.7152f + blue * 0.0722f) / 255;
+
+                    if (brightness <= threshold) {
+                        image.setRGB(x, y, 0xFFFFFFFF);
+                    }
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,97 @@
+package imageOps;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/* runs a per-pixel image kernel in parallel: the image is split into horizontal row bands, which are
+ * processed as ForkJoin tasks. Bands are split recursively until they contain no more than minBandPixels
+ * pixels, so small images are still processed on the calling thread only.
+ *
+ * the kernel has to write disjoint rows only, i.e. every band writes its own rows of a shared destination.
+ * This way the bands are already "stitched" together when forEachBand returns.
+ */
+public final class TileExecutor {
+
+    public static final int DEFAULT_MIN_BAND_PIXELS = 1 << 16;
+
+    private static final TileExecutor DEFAULT = new TileExecutor(ForkJoinPool.commonPool(), DEFAULT_MIN_BAND_PIXELS);
+    private static final TileExecutor SEQUENTIAL = new TileExecutor(null, DEFAULT_MIN_BAND_PIXELS);
+
+    /**
+     * kernel for the rows y0 (inclusive) to y1 (exclusive)
+     */
+    public interface BandKernel {
+        void apply(int y0, int y1);
+    }
+
+    private final ForkJoinPool m_Pool;
+    private final int m_MinBandPixels;
+
+    /**
+     * @param pool the pool to run the bands on, null runs everything on the calling thread
+     * @param minBandPixels bands with less pixels are not split any further
+     */
+    public TileExecutor(ForkJoinPool pool, int minBandPixels) {
+        m_Pool = pool;
+        m_MinBandPixels = Math.max(minBandPixels, 1);
+    }
+
+    /**
+     * executor on the common ForkJoinPool
+     */
+    public static TileExecutor getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * executor which processes the whole image on the calling thread
+     */
+    public static TileExecutor sequential() {
+        return SEQUENTIAL;
+    }
+
+    public boolean isParallel() {
+        return m_Pool != null && m_Pool.getParallelism() > 1;
+    }
+
+    /**
+     * runs the kernel on all rows from minY to minY + height and returns when all bands are done
+     */
+    public void forEachBand(int minY, int height, int width, BandKernel kernel) {
+        if (height <= 0) return;
+
+        int minRows = Math.max(1, m_MinBandPixels / Math.max(width, 1));
+        if (!isParallel() || height <= minRows) {
+            kernel.apply(minY, minY + height);
+        } else {
+            m_Pool.invoke(new BandTask(kernel, minY, minY + height, minRows));
+        }
+    }
+
+    private static class BandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final BandKernel m_Kernel;
+        private final int m_Y0;
+        private final int m_Y1;
+        private final int m_MinRows;
+
+        BandTask(BandKernel kernel, int y0, int y1, int minRows) {
+            m_Kernel = kernel;
+            m_Y0 = y0;
+            m_Y1 = y1;
+            m_MinRows = minRows;
+        }
+
+        @Override
+        protected void compute() {
+            if (m_Y1 - m_Y0 <= m_MinRows) {
+                m_Kernel.apply(m_Y0, m_Y1);
+            } else {
+                int middle = (m_Y0 + m_Y1) >>> 1;
+                invokeAll(new BandTask(m_Kernel, m_Y0, middle, m_MinRows),
+                        new BandTask(m_Kernel, middle, m_Y1, m_MinRows));
+            }
+        }
+    }
+}
@@ -3,14 +3,18 @@ package pmp.filter;
 import pmp.interfaces.IOable;
 import pmp.interfaces.Readable;
 import pmp.interfaces.Writeable;
+import pmp.metrics.StageMetrics;
 
 import java.io.StreamCorruptedException;
 import java.security.InvalidParameterException;
+import java.util.List;
 
 /* This is the most abstract filter class in PmP. Any filter in the pipeline should derive somehow from this
  * class. It is responsible for:
  * - connection with the pipeline during construction
  * - run method for active filter
+ * - the metrics of the filter: entities read and written, time blocked on the input and output (derived filters
+ *   time their hook method)
  * contract: a null entity signals end of stream
  */
 
@@ -21,6 +25,10 @@ public abstract class AbstractFilter<in, out> implements IOable<in, out>, Runnab
     public static Object ENDING_SIGNAL = null;   //actually, there is no other choice since null is the only object
                                                  //satisfying any type request for "in" and "out" template
 
+    public static final int DEFAULT_BATCH_SIZE = 32;
+    protected int m_BatchSize = DEFAULT_BATCH_SIZE;
+    protected final StageMetrics m_Metrics = new StageMetrics();
+
     public AbstractFilter(){}
 
     public AbstractFilter(Readable<in> input) throws InvalidParameterException{
@@ -47,9 +55,25 @@ public abstract class AbstractFilter<in, out> implements IOable<in, out>, Runnab
         m_Output = output;
     }
 
+    public void setInput(Readable<in> input){
+        if (input == null) {
+            throw new InvalidParameterException("input filter can't be null!");
+        }
+        m_Input = input;
+    }
+
+    public void setOutput(Writeable<out> output){
+        if (output == null) {
+            throw new InvalidParameterException("output filter can't be null!");
+        }
+        m_Output = output;
+    }
+
     protected void writeOutput(out value) throws StreamCorruptedException{
         if (m_Output != null){
-           m_Output.write(value);
+            long start = System.nanoTime();
+            m_Output.write(value);
+            m_Metrics.written(value == ENDING_SIGNAL ? 0 : 1, start);
         }else{
             throw new StreamCorruptedException("output is null");
         }
@@ -57,26 +81,72 @@ public abstract class AbstractFilter<in, out> implements IOable<in, out>, Runnab
 
     protected in readInput() throws StreamCorruptedException{
         if (m_Input != null){
-            return m_Input.read();
+            long start = System.nanoTime();
+            in value = m_Input.read();
+            m_Metrics.read(value == ENDING_SIGNAL ? 0 : 1, start);
+            return value;
         }else{
             throw new StreamCorruptedException("input is null");
         }
     }
 
+    protected void writeOutputBatch(List<out> values) throws StreamCorruptedException{
+        if (m_Output != null){
+            long start = System.nanoTime();
+            m_Output.writeBatch(values);
+            m_Metrics.written(StageMetrics.count(values), start);
+        }else{
+            throw new StreamCorruptedException("output is null");
+        }
+    }
+
+    protected List<in> readInputBatch(int max) throws StreamCorruptedException{
+        if (m_Input != null){
+            long start = System.nanoTime();
+            List<in> values = m_Input.readBatch(max);
+            m_Metrics.read(StageMetrics.count(values), start);
+            return values;
+        }else{
+            throw new StreamCorruptedException("input is null");
+        }
+    }
+
+    public StageMetrics getMetrics() {
+        return m_Metrics;
+    }
+
+    public int getBatchSize() {
+        return m_BatchSize;
+    }
+
+    /**
+     * maximal number of entities moved at once by run()
+     */
+    public void setBatchSize(int batchSize) {
+        m_BatchSize = Math.max(batchSize, 1);
+    }
+
+    /**
+     * true if the batch ends with the ending signal
+     */
+    protected static boolean endsStream(List<?> batch) {
+        return !batch.isEmpty() && batch.get(batch.size() - 1) == ENDING_SIGNAL;
+    }
+
     /**
      * runs the filter in active-mode
      */
     public void run() {
-        out output = null;
+        List<out> output = null;
 
         try {
             do {
 
-                output = read();
+                output = readBatch(m_BatchSize);
 
-                writeOutput(output);
+                writeOutputBatch(output);
 
-            }while(output != null);
+            }while(!endsStream(output));
         } catch (StreamCorruptedException e) {
             System.out.print("Thread reports error: ");
             System.out.println(Thread.currentThread().getId() + " (" + Thread.currentThread().getName() + ")");
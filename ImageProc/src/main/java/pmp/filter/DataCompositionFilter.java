@@ -64,13 +64,13 @@ public abstract class DataCompositionFilter<in, out> extends AbstractFilter<in,
     public void write(in value) throws StreamCorruptedException {
         if (value != ENDING_SIGNAL) {
             if (m_TempWriteEntity == null) m_TempWriteEntity = getNewEntityObject();
-            if (fillEntity(value, m_TempWriteEntity)) {
+            if (timedFillEntity(value, m_TempWriteEntity)) {
                 writeOutput(m_TempWriteEntity);
                 m_TempWriteEntity = null;
             }
         } else {
             if (m_TempWriteEntity != null)
-                fillEntity(value, m_TempWriteEntity);    //signal with value==null that entity might have to be flushed
+                timedFillEntity(value, m_TempWriteEntity);    //signal with value==null that entity might have to be flushed
             if (m_TempWriteEntity != null)
                 writeOutput(m_TempWriteEntity);
 
@@ -95,9 +95,9 @@ public abstract class DataCompositionFilter<in, out> extends AbstractFilter<in,
             do {
                 input = readInput();
                 if (input != ENDING_SIGNAL) {
-                    finished = fillEntity(input, entity);
+                    finished = timedFillEntity(input, entity);
                 } else {
-                    fillEntity(input, entity);    //signal with input==null that entity might have to be flushed
+                    timedFillEntity(input, entity);    //signal with input==null that entity might have to be flushed
                     m_EndOfStream = true;
                     finished = true;
                 }
@@ -109,6 +109,13 @@ public abstract class DataCompositionFilter<in, out> extends AbstractFilter<in,
     }
 
 
+    private boolean timedFillEntity(in nextVal, out entity) {
+        long start = System.nanoTime();
+        boolean finished = fillEntity(nextVal, entity);
+        m_Metrics.processed(start);
+        return finished;
+    }
+
     /**
      * fill the entity with the next given value
      *
@@ -5,6 +5,8 @@ import pmp.interfaces.Writeable;
 
 import java.io.StreamCorruptedException;
 import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.List;
 
 /* this filter changes "in place" the input (without changing neither the type nor the reference) and 
  * sends the modified input as an output
@@ -33,28 +35,53 @@ public abstract class DataTransformationFilter1<T> extends AbstractFilter<T,T> {
 
     public DataTransformationFilter1(){}
 
-    public void setOutput(Writeable<T> output){
-        if (output == null) {
-            throw new InvalidParameterException("output filter can't be null!");
-        }
-        m_Output = output;
-    }
-
     public T read() throws StreamCorruptedException {
         T entity = readInput();
-        if (entity != null) process(entity);
+        if (entity != null) timedProcess(entity);
         if (entity == ENDING_SIGNAL)
         	beforeSendingEndingSignal();
         return entity;
     }
 
     public void write(T value) throws StreamCorruptedException {
-        if (value != null) process(value);
+        if (value != null) timedProcess(value);
         if (value == ENDING_SIGNAL)
         	beforeSendingEndingSignal();
         writeOutput(value);
     }
+
+    public List<T> readBatch(int max) throws StreamCorruptedException {
+        List<T> entities = readInputBatch(max);
+        for (T entity : entities) {
+            if (entity != null) timedProcess(entity);
+        }
+        if (endsStream(entities))
+            beforeSendingEndingSignal();
+        return entities;
+    }
+
+    public void writeBatch(List<T> values) throws StreamCorruptedException {
+        List<T> results = new ArrayList<T>(values.size());
+        for (T value : values) {
+            if (value != null) {
+                timedProcess(value);
+                results.add(value);
+            } else {
+                writeOutputBatch(results);
+                beforeSendingEndingSignal();
+                writeOutput(value);
+                return;
+            }
+        }
+        writeOutputBatch(results);
+    }
     
+    private void timedProcess(T entity) {
+        long start = System.nanoTime();
+        process(entity);
+        m_Metrics.processed(start);
+    }
+
     /**
      * does the transformation on entity (mutable entity). Alternatively, for transforming an
      * immutable entity, use DataTransformationFilter2.
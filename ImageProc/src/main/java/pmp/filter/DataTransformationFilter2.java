@@ -6,6 +6,8 @@ import pmp.interfaces.Writeable;
 import javax.media.jai.PlanarImage;
 import java.io.StreamCorruptedException;
 import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
 * same as DataTransformationFilter1, but with the possibility to output a new object of the same or another type
@@ -35,18 +37,11 @@ public abstract class DataTransformationFilter2<T,S> extends AbstractFilter<T,S>
 
     }
 
-    public void setOutput(Writeable<S> output){
-        if (output == null) {
-            throw new InvalidParameterException("output filter can't be null!");
-        }
-        m_Output = output;
-    }
-
     public S read() throws StreamCorruptedException {
         T entity = readInput();
         S result = null;
         if (entity != null) 
-        	result = process(entity);
+        	result = timedProcess(entity);
         if (result == ENDING_SIGNAL)
         	beforeSendingEndingSignal();
 
@@ -56,12 +51,52 @@ public abstract class DataTransformationFilter2<T,S> extends AbstractFilter<T,S>
     public void write(T value) throws StreamCorruptedException {
         S result = null;
         if (value != null) 
-        	result = process(value);
+        	result = timedProcess(value);
         if (result == ENDING_SIGNAL)
         	beforeSendingEndingSignal();
        writeOutput(result);
     }
+
+    public List<S> readBatch(int max) throws StreamCorruptedException {
+        List<T> entities = readInputBatch(max);
+        List<S> results = new ArrayList<S>(entities.size());
+        for (T entity : entities) {
+            S result = null;
+            if (entity != null)
+                result = timedProcess(entity);
+            results.add(result);
+            if (result == ENDING_SIGNAL) {
+                beforeSendingEndingSignal();
+                break;
+            }
+        }
+        return results;
+    }
+
+    public void writeBatch(List<T> values) throws StreamCorruptedException {
+        List<S> results = new ArrayList<S>(values.size());
+        for (T value : values) {
+            S result = null;
+            if (value != null)
+                result = timedProcess(value);
+            if (result == ENDING_SIGNAL) {
+                writeOutputBatch(results);
+                beforeSendingEndingSignal();
+                writeOutput(result);
+                return;
+            }
+            results.add(result);
+        }
+        writeOutputBatch(results);
+    }
     
+    private S timedProcess(T entity) {
+        long start = System.nanoTime();
+        S result = process(entity);
+        m_Metrics.processed(start);
+        return result;
+    }
+
     /**
      * does the transformation on entity
      * @param entity
@@ -6,6 +6,7 @@ import pmp.interfaces.Writeable;
 import java.io.StreamCorruptedException;
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
 * same as DataTransformationFilter2, but with the possibility to output several new objects of the same or another type
@@ -45,7 +46,7 @@ public abstract class DataTransformationFilter3<T,S> extends AbstractFilter<T,S>
 			while (resultBuffer.size() == 0)  {
     		  entity = readInput();
     		  if (entity != null) 
-    			  resultBuffer = process(entity);
+    			  resultBuffer = timedProcess(entity);
     		  else
     			  break;
 			}
@@ -70,7 +71,7 @@ public abstract class DataTransformationFilter3<T,S> extends AbstractFilter<T,S>
     public void write(T value) throws StreamCorruptedException {
 
         if (value != null)  { 
-        	resultBuffer = process(value);
+        	resultBuffer = timedProcess(value);
         	if (resultBuffer.size()>0)  {
             //now push the result buffer and thereafter empty it
         		for (S result:resultBuffer)        		
@@ -86,6 +87,54 @@ public abstract class DataTransformationFilter3<T,S> extends AbstractFilter<T,S>
         }     	
     }
     
+    /**
+     * hands out all buffered results (at most max), pulling the next input only if nothing is buffered
+     */
+    public List<S> readBatch(int max) throws StreamCorruptedException {
+        List<S> results = new ArrayList<S>();
+        int limit = Math.max(max, 1);
+
+        while (results.size() < limit) {
+            if (resultBuffer.size() > 0) {
+                int count = Math.min(limit - results.size(), resultBuffer.size());
+                List<S> chunk = resultBuffer.subList(0, count);
+                results.addAll(chunk);
+                chunk.clear();
+            } else if (results.size() > 0) {
+                break;      // do not block for more input while there is something to hand out
+            } else {
+                S result = read();
+                results.add(result);
+                if (result == ENDING_SIGNAL)
+                    break;
+            }
+        }
+        return results;
+    }
+
+    public void writeBatch(List<T> values) throws StreamCorruptedException {
+        ArrayList<S> results = new ArrayList<S>();
+        for (T value : values) {
+            if (value != null) {
+                results.addAll(timedProcess(value));
+            } else {
+                writeOutputBatch(results);
+                beforeSendingEndingSignal();
+                writeOutput(null);
+                return;
+            }
+        }
+        if (results.size() > 0)
+            writeOutputBatch(results);
+    }
+
+    private ArrayList<S> timedProcess(T entity) {
+        long start = System.nanoTime();
+        ArrayList<S> results = process(entity);
+        m_Metrics.processed(start);
+        return results;
+    }
+
     /**
      * does the transformation on entity
      * @param entity
@@ -94,13 +143,12 @@ public abstract class DataTransformationFilter3<T,S> extends AbstractFilter<T,S>
 
     @Override
     public void run() {
-        T input = null;
-        S output = null;
+        List<T> input = null;
         try {
             do {
-            	input = readInput();
-                write(input);                
-            }while(input != null);
+            	input = readInputBatch(m_BatchSize);
+                writeBatch(input);
+            }while(!endsStream(input));
         } catch (StreamCorruptedException e) {
             // TODO Automatisch erstellter Catch-Block
             e.printStackTrace();
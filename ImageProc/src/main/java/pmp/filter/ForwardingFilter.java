@@ -5,6 +5,8 @@ import pmp.interfaces.Writeable;
 
 import java.io.StreamCorruptedException;
 import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.List;
 
 /* this filter filters incoming values by blocking them if a condition (abstract method "forward") on that entity fails
  * 
@@ -38,7 +40,7 @@ public abstract class ForwardingFilter<T> extends AbstractFilter<T,T> {
         		beforeSendingEndingSignal();
         		return input;
         	}
-        	else if ( forward(input) )  
+        	else if ( timedForward(input) )  
         		return input;
         }       		
            	
@@ -49,11 +51,51 @@ public abstract class ForwardingFilter<T> extends AbstractFilter<T,T> {
     		beforeSendingEndingSignal();
     		writeOutput(value);
     	}
-    	else if ( forward(value) )
+    	else if ( timedForward(value) )
             writeOutput(value);
     }
+
+    public List<T> readBatch(int max) throws StreamCorruptedException {
+        List<T> results = new ArrayList<T>();
+
+        while (results.isEmpty()) {
+            for (T input : readInputBatch(max)) {
+                if (input == ENDING_SIGNAL) {
+                    beforeSendingEndingSignal();
+                    results.add(input);
+                    return results;
+                }
+                else if ( timedForward(input) )
+                    results.add(input);
+            }
+        }
+        return results;
+    }
+
+    public void writeBatch(List<T> values) throws StreamCorruptedException {
+        List<T> results = new ArrayList<T>(values.size());
+        for (T value : values) {
+            if (value == ENDING_SIGNAL) {
+                writeOutputBatch(results);
+                beforeSendingEndingSignal();
+                writeOutput(value);
+                return;
+            }
+            else if ( timedForward(value) )
+                results.add(value);
+        }
+        if (!results.isEmpty())
+            writeOutputBatch(results);
+    }
     
 
+    private boolean timedForward(T entity) {
+        long start = System.nanoTime();
+        boolean forward = forward(entity);
+        m_Metrics.processed(start);
+        return forward;
+    }
+
     protected abstract boolean forward(T entity);
 
 }
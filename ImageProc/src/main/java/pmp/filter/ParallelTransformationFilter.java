@@ -0,0 +1,211 @@
+package pmp.filter;
+
+import pmp.interfaces.Readable;
+import pmp.interfaces.Writeable;
+
+import java.io.StreamCorruptedException;
+import java.security.InvalidParameterException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+* data-parallel version of a stateless DataTransformationFilter2: the incoming entities are distributed over
+* several worker copies of the filter (created through a factory) which process them concurrently on an executor.
+* The results are passed on in the order of the incoming entities.
+*
+* At most maxInFlight entities are processed or waiting to be passed on at the same time.
+* The process method of the workers is never called concurrently on the same worker copy.
+*
+* contract: a null entity signals end of stream
+*/
+
+public class ParallelTransformationFilter<T,S> extends AbstractFilter<T,S> {
+
+    private final BlockingQueue<DataTransformationFilter2<T,S>> m_IdleWorkers;
+    private final int m_WorkerCount;
+    private final int m_MaxInFlight;
+    private final ArrayDeque<Future<S>> m_Pending = new ArrayDeque<Future<S>>();
+
+    private ExecutorService m_Executor = null;
+    private boolean m_OwnsExecutor = false;
+    private boolean m_EndOfInput = false;
+
+    public ParallelTransformationFilter(Supplier<? extends DataTransformationFilter2<T,S>> factory, int workers, int maxInFlight) throws InvalidParameterException {
+        if (factory == null) {
+            throw new InvalidParameterException("factory can't be null!");
+        }
+        m_WorkerCount = Math.max(workers, 1);
+        m_IdleWorkers = new ArrayBlockingQueue<DataTransformationFilter2<T,S>>(m_WorkerCount);
+        for (int i = 0; i < m_WorkerCount; i++) {
+            DataTransformationFilter2<T,S> worker = factory.get();
+            if (worker == null) {
+                throw new InvalidParameterException("factory returned no worker!");
+            }
+            m_IdleWorkers.add(worker);
+        }
+        m_MaxInFlight = Math.max(maxInFlight, 1);
+    }
+
+    public ParallelTransformationFilter(Readable<T> input, Supplier<? extends DataTransformationFilter2<T,S>> factory, int workers, int maxInFlight) throws InvalidParameterException {
+        this(factory, workers, maxInFlight);
+        setInput(input);
+    }
+
+    public ParallelTransformationFilter(Writeable<S> output, Supplier<? extends DataTransformationFilter2<T,S>> factory, int workers, int maxInFlight) throws InvalidParameterException {
+        this(factory, workers, maxInFlight);
+        setOutput(output);
+    }
+
+    /**
+     * uses a shared executor instead of an own thread pool. The executor is not shut down by this filter.
+     */
+    public synchronized void setExecutor(ExecutorService executor) {
+        if (executor == null) {
+            throw new InvalidParameterException("executor can't be null!");
+        }
+        if (m_OwnsExecutor) {
+            m_Executor.shutdown();
+            m_OwnsExecutor = false;
+        }
+        m_Executor = executor;
+    }
+
+    public int getWorkerCount() {
+        return m_WorkerCount;
+    }
+
+    public int getMaxInFlight() {
+        return m_MaxInFlight;
+    }
+
+    public synchronized S read() throws StreamCorruptedException {
+        while (!m_EndOfInput && m_Pending.size() < m_MaxInFlight) {
+            T entity = readInput();
+            if (entity == ENDING_SIGNAL) {
+                m_EndOfInput = true;
+            } else {
+                submit(entity);
+            }
+        }
+
+        S result = null;
+        if (!m_Pending.isEmpty())
+            result = await(m_Pending.removeFirst());
+        if (result == ENDING_SIGNAL)
+            finish();
+        return result;
+    }
+
+    /**
+     * returns the next result and, without blocking, all further results which are already available
+     */
+    public synchronized List<S> readBatch(int max) throws StreamCorruptedException {
+        List<S> results = new ArrayList<S>();
+        S result = read();
+        results.add(result);
+
+        while (result != ENDING_SIGNAL && results.size() < max && !m_Pending.isEmpty() && m_Pending.peekFirst().isDone()) {
+            result = await(m_Pending.removeFirst());
+            results.add(result);
+            if (result == ENDING_SIGNAL)
+                finish();
+        }
+        return results;
+    }
+
+    public synchronized void write(T value) throws StreamCorruptedException {
+        if (value == ENDING_SIGNAL) {
+            while (!m_Pending.isEmpty()) {
+                if (!forward(await(m_Pending.removeFirst())))
+                    return;
+            }
+            finish();
+            writeOutput(null);
+            return;
+        }
+
+        while (m_Pending.size() >= m_MaxInFlight) {
+            if (!forward(await(m_Pending.removeFirst())))
+                return;
+        }
+        submit(value);
+
+        // pass on everything that is finished already, keeping the order
+        while (!m_Pending.isEmpty() && m_Pending.peekFirst().isDone()) {
+            if (!forward(await(m_Pending.removeFirst())))
+                return;
+        }
+    }
+
+    /**
+     * writes a result downstream; a null result ends the stream like in DataTransformationFilter2
+     */
+    private boolean forward(S result) throws StreamCorruptedException {
+        if (result == ENDING_SIGNAL) {
+            finish();
+            writeOutput(result);
+            return false;
+        }
+        writeOutput(result);
+        return true;
+    }
+
+    private void submit(final T entity) {
+        if (m_Executor == null) {
+            m_Executor = Executors.newFixedThreadPool(m_WorkerCount, r -> {
+                Thread thread = new Thread(r, "pmp-parallel-" + getClass().getSimpleName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            m_OwnsExecutor = true;
+        }
+
+        m_Pending.addLast(m_Executor.submit(new Callable<S>() {
+            public S call() throws Exception {
+                DataTransformationFilter2<T,S> worker = m_IdleWorkers.take();
+                long start = System.nanoTime();
+                try {
+                    return worker.process(entity);
+                } finally {
+                    m_Metrics.processed(start);
+                    m_IdleWorkers.put(worker);
+                }
+            }
+        }));
+    }
+
+    private S await(Future<S> future) throws StreamCorruptedException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StreamCorruptedException("interrupted while waiting for a worker");
+        } catch (ExecutionException e) {
+            StreamCorruptedException sce = new StreamCorruptedException("worker failed: " + e.getCause());
+            sce.initCause(e.getCause());
+            throw sce;
+        }
+    }
+
+    private void finish() throws StreamCorruptedException {
+        for (Future<S> future : m_Pending) {
+            future.cancel(true);
+        }
+        m_Pending.clear();
+        if (m_OwnsExecutor) {
+            m_Executor.shutdown();
+            m_Executor = null;
+            m_OwnsExecutor = false;
+        }
+        beforeSendingEndingSignal();
+    }
+}
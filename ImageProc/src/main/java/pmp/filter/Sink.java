@@ -2,9 +2,11 @@ package pmp.filter;
 
 import pmp.interfaces.Readable;
 import pmp.interfaces.Writeable;
+import pmp.metrics.StageMetrics;
 
 import java.io.StreamCorruptedException;
 import java.security.InvalidParameterException;
+import java.util.List;
 
 /*
  * a simple sink: takes passively objects or pulls actively objects without doing anything with the stream objects
@@ -17,6 +19,8 @@ import java.security.InvalidParameterException;
 public class Sink<T> implements Writeable<T>, Runnable{
 	
     protected Readable<T> m_Input = null;
+    protected final StageMetrics m_Metrics = new StageMetrics();
+    private volatile boolean m_Completed = false;
     
     public static Object ENDING_SIGNAL = null;
     
@@ -32,6 +36,27 @@ public class Sink<T> implements Writeable<T>, Runnable{
     	
     }
 
+    /**
+     * the time of write() counts as processing, in active mode only
+     */
+    public StageMetrics getMetrics() {
+        return m_Metrics;
+    }
+
+    /**
+     * true once the active sink has got through the end of stream without an error
+     */
+    public boolean hasCompleted() {
+        return m_Completed;
+    }
+
+    public void setInput(Readable<T> input){
+        if (input == null) {
+            throw new InvalidParameterException("input filter can't be null!");
+        }
+        m_Input = input;
+    }
+
 /*
  * push next value into sink
  * @see interfaces.Writeable#write(java.lang.Object)
@@ -41,7 +66,16 @@ public class Sink<T> implements Writeable<T>, Runnable{
 	}
 	
 /*
- * epilogue is a cleanup method at the end of the stream in case of an active sink	
+ * called by an active sink when the ending signal has arrived: whatever must be finished for the stream to count as
+ * written (flushing, closing) belongs here, a failure makes the sink fail
+ */
+	protected void afterEndingSignal() throws StreamCorruptedException {
+		//noop
+	}
+
+/*
+ * epilogue is a best-effort cleanup method at the end of the stream in case of an active sink,
+ * also called when the active sink fails
  */
 	public void epilogue()  {
 		//noop
@@ -52,23 +86,35 @@ public class Sink<T> implements Writeable<T>, Runnable{
  * @see java.lang.Runnable#run()
  */
     public void run() {
-        T input = null;
+        boolean endOfStream = false;
         try {
             do {
                 if (m_Input == null)
                     throw new StreamCorruptedException("input filter is null");
                 
-                input = m_Input.read();
+                long start = System.nanoTime();
+                List<T> batch = m_Input.readBatch(AbstractFilter.DEFAULT_BATCH_SIZE);
+                m_Metrics.read(StageMetrics.count(batch), start);
 
-                if (input != null) 
+                for (T input : batch) {
+                    if (input == null) {
+                        endOfStream = true;
+                        break;
+                    }
+                    start = System.nanoTime();
                     write(input);
+                    m_Metrics.processed(start);
+                }
                 
-            } while(input != null);
-            epilogue();
+            } while(!endOfStream);
+            afterEndingSignal();
+            m_Completed = true;
 
         } catch (StreamCorruptedException e) {
             // TODO Automatisch erstellter Catch-Block
             e.printStackTrace();
+        } finally {
+            epilogue();
         }
     }
 	
@@ -2,6 +2,7 @@ package pmp.filter;
 
 import pmp.interfaces.Readable;
 import pmp.interfaces.Writeable;
+import pmp.metrics.StageMetrics;
 
 import javax.media.jai.PlanarImage;
 import java.io.StreamCorruptedException;
@@ -18,6 +19,7 @@ import java.security.InvalidParameterException;
 public abstract class Source<T> implements Readable<T>, Runnable{
 	
     protected Writeable<T> m_Output = null;
+    protected final StageMetrics m_Metrics = new StageMetrics();
     
     public static Object ENDING_SIGNAL = null;
 
@@ -39,6 +41,13 @@ public abstract class Source<T> implements Readable<T>, Runnable{
     	
     }
 
+    /**
+     * the time of read() counts as processing, in active mode only
+     */
+    public StageMetrics getMetrics() {
+        return m_Metrics;
+    }
+
 /*
  * pull next value from source. 
  * contract: returning a null signals the end of the stream to the caller
@@ -46,7 +55,8 @@ public abstract class Source<T> implements Readable<T>, Runnable{
 	public abstract T read() throws StreamCorruptedException;
 	
 /*
- * epilogue is a cleanup method at the end of the stream
+ * epilogue is a cleanup method at the end of the stream, in case of an active source
+ * also called when it fails
  */
 	public void epilogue()  {
 		//noop
@@ -63,15 +73,22 @@ public abstract class Source<T> implements Readable<T>, Runnable{
                 if (m_Output == null)
                     throw new StreamCorruptedException("output filter is null");
                 
+                long start = System.nanoTime();
                 output = read();
+                if (output != null)
+                    m_Metrics.processed(start);
+
+                start = System.nanoTime();
                 m_Output.write(output);
+                m_Metrics.written(output == null ? 0 : 1, start);
                 
             } while(output != null);
-            epilogue();
 
         } catch (StreamCorruptedException e) {
             // TODO Automatisch erstellter Catch-Block
             e.printStackTrace();
+        } finally {
+            epilogue();
         }
     }
 	
@@ -1,7 +1,20 @@
 package pmp.interfaces;
 
 import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.List;
 
 public interface Readable<T>  {
 	public T read() throws StreamCorruptedException;
+
+	/**
+	 * reads at least one and at most max entities at once. Implementations should not block for more
+	 * entities once they have one to return.
+	 * contract: the ending signal (null) is always the last element of a batch
+	 */
+	public default List<T> readBatch(int max) throws StreamCorruptedException {
+		List<T> batch = new ArrayList<T>(1);
+		batch.add(read());
+		return batch;
+	}
 }
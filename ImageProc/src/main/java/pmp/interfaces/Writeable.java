@@ -1,7 +1,17 @@
 package pmp.interfaces;
 
 import java.io.StreamCorruptedException;
+import java.util.List;
 
 public interface Writeable<T> {
 	public void write(T value) throws StreamCorruptedException;
+
+	/**
+	 * writes all values in order, as if write was called for each of them
+	 */
+	public default void writeBatch(List<T> values) throws StreamCorruptedException {
+		for (T value : values) {
+			write(value);
+		}
+	}
 }
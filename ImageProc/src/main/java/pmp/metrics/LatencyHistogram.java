@@ -0,0 +1,102 @@
+package pmp.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/* a lock-free histogram of durations in nanoseconds with a relative error of at most 1/8: below 16 ns every value
+ * has its own bucket, above every power of two is split into 8 buckets. Recording is an index computation and an
+ * atomic increment, so it can be called from several threads on every entity.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray m_Counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong m_Count = new AtomicLong();
+    private final AtomicLong m_Sum = new AtomicLong();
+    private final AtomicLong m_Max = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        m_Counts.incrementAndGet(bucket(nanos));
+        m_Count.incrementAndGet();
+        m_Sum.addAndGet(nanos);
+
+        long max = m_Max.get();
+        while (nanos > max && !m_Max.compareAndSet(max, nanos)) {
+            max = m_Max.get();
+        }
+    }
+
+    private static int bucket(long nanos) {
+        if (nanos < 2 * SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (nanos >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * the largest value which falls into the bucket
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long mantissa = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    public long getCount() {
+        return m_Count.get();
+    }
+
+    public long getSum() {
+        return m_Sum.get();
+    }
+
+    public long getMax() {
+        return m_Max.get();
+    }
+
+    public double getMean() {
+        long count = m_Count.get();
+        return count == 0 ? 0 : (double) m_Sum.get() / count;
+    }
+
+    /**
+     * the value below which the fraction (0..1) of the recorded values lies, rounded up to its bucket
+     */
+    public long getPercentile(double fraction) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += m_Counts.get(i);
+        }
+        if (total == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += m_Counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), m_Max.get());
+            }
+        }
+        return m_Max.get();
+    }
+
+    /**
+     * not atomic: values recorded meanwhile may partly survive
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            m_Counts.set(i, 0);
+        }
+        m_Count.set(0);
+        m_Sum.set(0);
+        m_Max.set(0);
+    }
+}
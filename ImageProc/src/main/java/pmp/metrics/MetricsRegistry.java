@@ -0,0 +1,177 @@
+package pmp.metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/* the stage and pipe metrics of the running pipelines of this JVM, by name. Every registered metrics object is
+ * also an MBean of the platform MBean server ("pmp:type=Stage,name=..." and "pmp:type=Pipe,name=..."), so it can
+ * be watched with jconsole or any other JMX client, and the registry can print all of them as a table periodically.
+ *
+ * PipelineRunner and PipelineWorker register their stages and pipes while they run. Starting a JVM with
+ * -Dpmp.metrics.dump=<seconds> prints the table of the default registry to stdout with that period.
+ */
+public class MetricsRegistry {
+
+    public static final String DOMAIN = "pmp";
+    public static final String DUMP_PROPERTY = "pmp.metrics.dump";
+
+    private static MetricsRegistry s_Default = null;
+
+    private final MBeanServer m_Server;
+    private final Map<String, StageMetrics> m_Stages = new LinkedHashMap<String, StageMetrics>();
+    private final Map<String, PipeMetrics> m_Pipes = new LinkedHashMap<String, PipeMetrics>();
+    private Thread m_Dumper = null;
+
+    /**
+     * @param server where the metrics are registered as MBeans, null for none
+     */
+    public MetricsRegistry(MBeanServer server) {
+        m_Server = server;
+    }
+
+    /**
+     * the registry of the platform MBean server
+     */
+    public static synchronized MetricsRegistry getDefault() {
+        if (s_Default == null) {
+            s_Default = new MetricsRegistry(ManagementFactory.getPlatformMBeanServer());
+            Long seconds = Long.getLong(DUMP_PROPERTY);
+            if (seconds != null && seconds > 0) {
+                s_Default.startDump(System.out, seconds * 1000);
+            }
+        }
+        return s_Default;
+    }
+
+    /**
+     * @return the name the metrics are registered with: name, or name#2, name#3, ... if it is taken
+     */
+    public synchronized String register(String name, StageMetrics metrics) {
+        String unique = uniqueName(name);
+        m_Stages.put(unique, metrics);
+        registerMBean("Stage", unique, metrics);
+        return unique;
+    }
+
+    public synchronized String register(String name, PipeMetrics metrics) {
+        String unique = uniqueName(name);
+        m_Pipes.put(unique, metrics);
+        registerMBean("Pipe", unique, metrics);
+        return unique;
+    }
+
+    public synchronized void unregister(String name) {
+        if (m_Stages.remove(name) != null) {
+            unregisterMBean("Stage", name);
+        } else if (m_Pipes.remove(name) != null) {
+            unregisterMBean("Pipe", name);
+        }
+    }
+
+    public synchronized StageMetrics getStage(String name) {
+        return m_Stages.get(name);
+    }
+
+    public synchronized PipeMetrics getPipe(String name) {
+        return m_Pipes.get(name);
+    }
+
+    private String uniqueName(String name) {
+        String unique = name;
+        for (int i = 2; m_Stages.containsKey(unique) || m_Pipes.containsKey(unique); i++) {
+            unique = name + "#" + i;
+        }
+        return unique;
+    }
+
+    private void registerMBean(String type, String name, Object metrics) {
+        if (m_Server == null) return;
+        try {
+            m_Server.registerMBean(metrics, objectName(type, name));
+        } catch (InstanceAlreadyExistsException e) {
+            // another registry of the same server uses the name; the metrics are still dumped
+        } catch (JMException e) {
+            System.err.println("can't register the metrics of " + name + ": " + e);
+        }
+    }
+
+    private void unregisterMBean(String type, String name) {
+        if (m_Server == null) return;
+        try {
+            m_Server.unregisterMBean(objectName(type, name));
+        } catch (JMException e) {
+            // not registered
+        }
+    }
+
+    private static ObjectName objectName(String type, String name) throws JMException {
+        return new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+    }
+
+    /**
+     * prints all metrics as two tables, stages and pipes
+     */
+    public synchronized void dump(PrintStream out) {
+        StringBuilder text = new StringBuilder();
+        if (!m_Stages.isEmpty()) {
+            text.append(String.format(Locale.ROOT, "%-40s %10s %10s %12s %12s %10s %10s %10s %10s%n",
+                    "stage", "in", "out", "read-blk ms", "write-blk ms", "proc n", "mean us", "p99 us", "max us"));
+            for (Map.Entry<String, StageMetrics> entry : m_Stages.entrySet()) {
+                StageMetrics stage = entry.getValue();
+                text.append(String.format(Locale.ROOT, "%-40s %10d %10d %12.1f %12.1f %10d %10.1f %10.1f %10.1f%n",
+                        entry.getKey(), stage.getItemsIn(), stage.getItemsOut(), stage.getReadBlockedMillis(), stage.getWriteBlockedMillis(),
+                        stage.getProcessCount(), stage.getProcessMeanMicros(), stage.getProcessP99Micros(), stage.getProcessMaxMicros()));
+            }
+        }
+        if (!m_Pipes.isEmpty()) {
+            text.append(String.format(Locale.ROOT, "%-40s %10s %10s %10s %10s %10s %10s %10s%n",
+                    "pipe", "depth", "high", "capacity", "written", "read", "full", "empty"));
+            for (Map.Entry<String, PipeMetrics> entry : m_Pipes.entrySet()) {
+                PipeMetrics pipe = entry.getValue();
+                text.append(String.format(Locale.ROOT, "%-40s %10d %10d %10d %10d %10d %10d %10d%n",
+                        entry.getKey(), pipe.getDepth(), pipe.getHighWaterMark(), pipe.getCapacity(),
+                        pipe.getItemsWritten(), pipe.getItemsRead(), pipe.getFullWaits(), pipe.getEmptyWaits()));
+            }
+        }
+        out.print(text);
+        out.flush();
+    }
+
+    /**
+     * prints the tables every periodMillis on a daemon thread, while anything is registered
+     */
+    public synchronized void startDump(PrintStream out, long periodMillis) {
+        stopDump();
+        Thread dumper = new Thread(() -> {
+            try {
+                while (true) {
+                    Thread.sleep(periodMillis);
+                    synchronized (this) {
+                        if (!m_Stages.isEmpty() || !m_Pipes.isEmpty()) {
+                            dump(out);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                // stopped
+            }
+        }, "pmp-metrics-dump");
+        dumper.setDaemon(true);
+        dumper.start();
+        m_Dumper = dumper;
+    }
+
+    public synchronized void stopDump() {
+        if (m_Dumper != null) {
+            m_Dumper.interrupt();
+            m_Dumper = null;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package pmp.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* the fill level of a pipe: the entities buffered (depth) and the most ever buffered (high-water mark), the
+ * entities which went through it, and how often a writer found it full or a reader found it empty.
+ *
+ * a pipe which is mostly full sits in front of a bottleneck, one which is mostly empty behind it.
+ */
+public class PipeMetrics implements PipeMetricsMBean {
+
+    private final int m_Capacity;
+    private volatile int m_Depth = 0;
+    private final AtomicInteger m_HighWaterMark = new AtomicInteger();
+    private final AtomicLong m_Written = new AtomicLong();
+    private final AtomicLong m_Read = new AtomicLong();
+    private final AtomicLong m_FullWaits = new AtomicLong();
+    private final AtomicLong m_EmptyWaits = new AtomicLong();
+
+    public PipeMetrics(int capacity) {
+        m_Capacity = capacity;
+    }
+
+    /**
+     * count entities were put into the pipe, which now buffers depth entities
+     */
+    public void written(int count, int depth) {
+        m_Written.addAndGet(count);
+        m_Depth = depth;
+
+        int high = m_HighWaterMark.get();
+        while (depth > high && !m_HighWaterMark.compareAndSet(high, depth)) {
+            high = m_HighWaterMark.get();
+        }
+    }
+
+    /**
+     * count entities were taken from the pipe, which now buffers depth entities
+     */
+    public void read(int count, int depth) {
+        m_Read.addAndGet(count);
+        m_Depth = depth;
+    }
+
+    public void waitedFull() {
+        m_FullWaits.incrementAndGet();
+    }
+
+    public void waitedEmpty() {
+        m_EmptyWaits.incrementAndGet();
+    }
+
+    public int getCapacity() {
+        return m_Capacity;
+    }
+
+    public int getDepth() {
+        return m_Depth;
+    }
+
+    public int getHighWaterMark() {
+        return m_HighWaterMark.get();
+    }
+
+    public long getItemsWritten() {
+        return m_Written.get();
+    }
+
+    public long getItemsRead() {
+        return m_Read.get();
+    }
+
+    public long getFullWaits() {
+        return m_FullWaits.get();
+    }
+
+    public long getEmptyWaits() {
+        return m_EmptyWaits.get();
+    }
+
+    /**
+     * the high-water mark starts again at the current depth
+     */
+    public void reset() {
+        m_HighWaterMark.set(m_Depth);
+        m_Written.set(0);
+        m_Read.set(0);
+        m_FullWaits.set(0);
+        m_EmptyWaits.set(0);
+    }
+}
@@ -0,0 +1,22 @@
+package pmp.metrics;
+
+/* the JMX view of a PipeMetrics
+ */
+public interface PipeMetricsMBean {
+
+    int getCapacity();
+
+    int getDepth();
+
+    int getHighWaterMark();
+
+    long getItemsWritten();
+
+    long getItemsRead();
+
+    long getFullWaits();
+
+    long getEmptyWaits();
+
+    void reset();
+}
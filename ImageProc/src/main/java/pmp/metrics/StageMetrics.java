@@ -0,0 +1,107 @@
+package pmp.metrics;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* what a stage (source, filter or sink) did so far: the entities it took from its input and passed to its output,
+ * the time it was blocked reading its input and writing its output, and how long its hook method (process, forward,
+ * fillEntity, the read of a source, the write of a sink) took per entity.
+ *
+ * a stage which is blocked on reading most of the time waits for its upstream, one blocked on writing for its
+ * downstream; the bottleneck of a pipeline is the stage which is blocked the least.
+ */
+public class StageMetrics implements StageMetricsMBean {
+
+    private final AtomicLong m_ItemsIn = new AtomicLong();
+    private final AtomicLong m_ItemsOut = new AtomicLong();
+    private final AtomicLong m_ReadBlocked = new AtomicLong();
+    private final AtomicLong m_WriteBlocked = new AtomicLong();
+    private final LatencyHistogram m_Process = new LatencyHistogram();
+
+    /**
+     * a read of count entities (without the ending signal), which started at start (System.nanoTime())
+     */
+    public void read(int count, long start) {
+        m_ReadBlocked.addAndGet(System.nanoTime() - start);
+        m_ItemsIn.addAndGet(count);
+    }
+
+    /**
+     * a write of count entities (without the ending signal), which started at start (System.nanoTime())
+     */
+    public void written(int count, long start) {
+        m_WriteBlocked.addAndGet(System.nanoTime() - start);
+        m_ItemsOut.addAndGet(count);
+    }
+
+    /**
+     * a call of the hook method, which started at start (System.nanoTime())
+     */
+    public void processed(long start) {
+        m_Process.record(System.nanoTime() - start);
+    }
+
+    /**
+     * number of entities in values, without the ending signal
+     */
+    public static int count(List<?> values) {
+        int count = values.size();
+        return count > 0 && values.get(count - 1) == null ? count - 1 : count;
+    }
+
+    public LatencyHistogram getProcessLatency() {
+        return m_Process;
+    }
+
+    public long getItemsIn() {
+        return m_ItemsIn.get();
+    }
+
+    public long getItemsOut() {
+        return m_ItemsOut.get();
+    }
+
+    public long getReadBlockedNanos() {
+        return m_ReadBlocked.get();
+    }
+
+    public long getWriteBlockedNanos() {
+        return m_WriteBlocked.get();
+    }
+
+    public double getReadBlockedMillis() {
+        return m_ReadBlocked.get() / 1e6;
+    }
+
+    public double getWriteBlockedMillis() {
+        return m_WriteBlocked.get() / 1e6;
+    }
+
+    public long getProcessCount() {
+        return m_Process.getCount();
+    }
+
+    public double getProcessMeanMicros() {
+        return m_Process.getMean() / 1e3;
+    }
+
+    public double getProcessP50Micros() {
+        return m_Process.getPercentile(0.5) / 1e3;
+    }
+
+    public double getProcessP99Micros() {
+        return m_Process.getPercentile(0.99) / 1e3;
+    }
+
+    public double getProcessMaxMicros() {
+        return m_Process.getMax() / 1e3;
+    }
+
+    public void reset() {
+        m_ItemsIn.set(0);
+        m_ItemsOut.set(0);
+        m_ReadBlocked.set(0);
+        m_WriteBlocked.set(0);
+        m_Process.reset();
+    }
+}
@@ -0,0 +1,26 @@
+package pmp.metrics;
+
+/* the JMX view of a StageMetrics; times in milliseconds (totals) and microseconds (per entity)
+ */
+public interface StageMetricsMBean {
+
+    long getItemsIn();
+
+    long getItemsOut();
+
+    double getReadBlockedMillis();
+
+    double getWriteBlockedMillis();
+
+    long getProcessCount();
+
+    double getProcessMeanMicros();
+
+    double getProcessP50Micros();
+
+    double getProcessP99Micros();
+
+    double getProcessMaxMicros();
+
+    void reset();
+}
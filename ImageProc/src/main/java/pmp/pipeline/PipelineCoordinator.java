@@ -0,0 +1,291 @@
+package pmp.pipeline;
+
+import pmp.metrics.MetricsRegistry;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/* runs a PipelineDescription on several JVMs: every stage runs on the worker given in the description, stages on
+ * the same worker are connected like in PipelineRunner, stages on different workers with SocketPipes.
+ *
+ * the workers are either started as local processes (launchWorkers, with the class path of this JVM) or already
+ * running PipelineWorkers (attachWorker, e.g. on other hosts); worker i of the description is the i-th launched or
+ * attached worker. run() can be called again for further pipelines.
+ *
+ *   PipelineCoordinator coordinator = new PipelineCoordinator();
+ *   coordinator.launchWorkers(2);
+ *   for (StageReport report : coordinator.run(description)) System.out.println(report);
+ *   coordinator.shutdown();
+ *
+ * error propagation: the first failure of any stage breaks the pipes of its worker, which makes the stages on the
+ *                    other workers fail as well; run() throws the failures of all workers
+ *
+ * if the pipeline can't be sent to every worker, or a reply can't be read, the control connections of the workers
+ * concerned are dropped, so no reply of that run is taken for one of the next. The next run() connects to them
+ * again, which waits until they have finished the abandoned pipeline.
+ */
+public class PipelineCoordinator implements AutoCloseable {
+
+    private static final int EXIT_TIMEOUT_SECONDS = 10;
+
+    private final List<Connection> m_Workers = new ArrayList<Connection>();
+    private final List<Process> m_Processes = new ArrayList<Process>();
+    private int m_Run = 0;
+
+    /**
+     * starts count PipelineWorkers as processes on this host; they dump their metrics like this JVM
+     * (MetricsRegistry.DUMP_PROPERTY)
+     */
+    public void launchWorkers(int count) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        for (int i = 0; i < count; i++) {
+            List<String> command = new ArrayList<String>();
+            command.add(java);
+            if (System.getProperty(MetricsRegistry.DUMP_PROPERTY) != null) {
+                command.add("-D" + MetricsRegistry.DUMP_PROPERTY + "=" + System.getProperty(MetricsRegistry.DUMP_PROPERTY));
+            }
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(PipelineWorker.class.getName());
+            ProcessBuilder builder = new ProcessBuilder(command);
+            builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+            Process process = builder.start();
+            m_Processes.add(process);
+
+            BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII));
+            String line;
+            while ((line = out.readLine()) != null && !line.startsWith(PipelineWorker.ANNOUNCEMENT + " ")) {
+                // output of the JVM before the worker listens
+            }
+            if (line == null) {
+                throw new IOException("worker process terminated before it was listening");
+            }
+            attachWorker("localhost", Integer.parseInt(line.substring(PipelineWorker.ANNOUNCEMENT.length() + 1).trim()));
+            m_Workers.get(m_Workers.size() - 1).m_Launched = true;
+            forward(out);
+        }
+    }
+
+    /**
+     * uses a PipelineWorker which is already running
+     */
+    public void attachWorker(String host, int controlPort) throws IOException {
+        m_Workers.add(new Connection(host, controlPort));
+    }
+
+    public int getWorkerCount() {
+        return m_Workers.size();
+    }
+
+    /**
+     * runs the pipeline until all stages have terminated
+     *
+     * @return the reports of all stages, in the order of the stages
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized List<StageReport> run(PipelineDescription description) throws InvalidParameterException, StreamCorruptedException {
+        List<PipelineDescription.Stage> stages = description.getStages();
+        if (stages.size() < 2) {
+            throw new InvalidParameterException("a pipeline needs at least a source and a sink!");
+        }
+        if (description.getWorkerCount() > m_Workers.size()) {
+            throw new InvalidParameterException("the pipeline needs " + description.getWorkerCount() + " workers, only " + m_Workers.size() + " available!");
+        }
+
+        // workers without a stage get no assignment
+        int run = ++m_Run;
+        boolean[] involved = new boolean[m_Workers.size()];
+        for (PipelineDescription.Stage stage : stages) {
+            involved[stage.getWorker()] = true;
+        }
+        for (int i = 0; i < involved.length; i++) {
+            if (involved[i]) {
+                try {
+                    reconnect(i);
+                } catch (IOException e) {
+                    throw broken("can't connect to worker " + i, e);
+                }
+            }
+        }
+
+        List<InetSocketAddress> dataAddresses = new ArrayList<InetSocketAddress>();
+        for (Connection worker : m_Workers) {
+            dataAddresses.add(worker.m_DataAddress);
+        }
+
+        for (int i = 0; i < involved.length; i++) {
+            if (involved[i]) {
+                try {
+                    m_Workers.get(i).send(new PipelineWorker.Assignment(description, i, run, dataAddresses));
+                } catch (IOException e) {
+                    // the workers before already run their part and would answer the next run()
+                    for (int j = 0; j <= i; j++) {
+                        if (involved[j]) m_Workers.get(j).close();
+                    }
+                    throw broken("can't send the pipeline to worker " + i, e);
+                }
+            }
+        }
+
+        List<StageReport> reports = new ArrayList<StageReport>();
+        StringBuilder failures = new StringBuilder();
+        Throwable cause = null;
+        for (int i = 0; i < involved.length; i++) {
+            if (!involved[i]) continue;
+
+            Object reply;
+            try {
+                reply = m_Workers.get(i).receive();
+            } catch (IOException e) {
+                m_Workers.get(i).close();       // the reply may still arrive
+                reply = e;
+            }
+            if (reply instanceof Throwable) {
+                failures.append(failures.length() == 0 ? "" : "; ").append("worker ").append(i).append(": ").append(((Throwable) reply).getMessage());
+                if (cause == null) cause = (Throwable) reply;
+            } else {
+                reports.addAll((List<StageReport>) reply);
+            }
+        }
+        if (cause != null) {
+            StreamCorruptedException sce = new StreamCorruptedException("pipeline failed: " + failures);
+            sce.initCause(cause);
+            throw sce;
+        }
+
+        reports.sort(Comparator.comparingInt(StageReport::getIndex));
+        return reports;
+    }
+
+    /**
+     * replaces a dropped control connection to worker i by a new one
+     */
+    private void reconnect(int i) throws IOException {
+        Connection worker = m_Workers.get(i);
+        if (worker.isClosed()) {
+            Connection connection = new Connection(worker.m_Host, worker.m_ControlPort);
+            connection.m_Launched = worker.m_Launched;
+            m_Workers.set(i, connection);
+        }
+    }
+
+    /**
+     * stops the launched workers and disconnects from the attached ones
+     */
+    public synchronized void shutdown() {
+        for (Connection worker : m_Workers) {
+            try {
+                if (worker.m_Launched) {
+                    worker.send(PipelineWorker.EXIT);
+                }
+            } catch (IOException e) {
+                // destroyed below
+            }
+            worker.close();
+        }
+        m_Workers.clear();
+
+        for (Process process : m_Processes) {
+            try {
+                if (!process.waitFor(EXIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+        }
+        m_Processes.clear();
+    }
+
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    private static StreamCorruptedException broken(String message, IOException e) {
+        StreamCorruptedException sce = new StreamCorruptedException(message + ": " + e);
+        sce.initCause(e);
+        return sce;
+    }
+
+    /**
+     * prints what the worker process writes to its standard output
+     */
+    private static void forward(BufferedReader out) {
+        Thread thread = new Thread(() -> {
+            try {
+                String line;
+                while ((line = out.readLine()) != null) {
+                    System.out.println(line);
+                }
+            } catch (IOException e) {
+                // process gone
+            }
+        }, "pmp-worker-output");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /*
+     * the control connection to a worker
+     */
+    private static class Connection {
+        final String m_Host;
+        final int m_ControlPort;
+        final Socket m_Socket;
+        final ObjectOutputStream m_Out;
+        final ObjectInputStream m_In;
+        final InetSocketAddress m_DataAddress;
+        boolean m_Launched = false;
+
+        Connection(String host, int controlPort) throws IOException {
+            m_Host = host;
+            m_ControlPort = controlPort;
+            m_Socket = new Socket(host, controlPort);
+            m_Out = new ObjectOutputStream(m_Socket.getOutputStream());
+            m_Out.flush();
+            m_In = new ObjectInputStream(m_Socket.getInputStream());
+            m_DataAddress = new InetSocketAddress(host, m_In.readInt());
+        }
+
+        void send(Object message) throws IOException {
+            m_Out.writeObject(message);
+            m_Out.reset();
+            m_Out.flush();
+        }
+
+        Object receive() throws IOException {
+            try {
+                return m_In.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("unknown reply from worker: " + e.getMessage(), e);
+            }
+        }
+
+        boolean isClosed() {
+            return m_Socket.isClosed();
+        }
+
+        void close() {
+            try {
+                m_Socket.close();
+            } catch (IOException e) {
+                // closing anyway
+            }
+        }
+    }
+}
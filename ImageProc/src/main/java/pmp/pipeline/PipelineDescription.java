@@ -0,0 +1,121 @@
+package pmp.pipeline;
+
+import pmp.filter.AbstractFilter;
+import pmp.filter.Sink;
+import pmp.filter.Source;
+import pmp.pipes.FrameCodec;
+
+import java.io.Serializable;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/* a linear pipeline (source -> filters -> sink) for the PipelineCoordinator: the class of every stage, the worker
+ * (JVM) it runs on, the codec for its output if the next stage runs on another worker and bean properties to set.
+ *
+ * the stage classes need a public constructor without parameters and must be on the class path of the workers.
+ *
+ *   new PipelineDescription()
+ *       .stage(ImageSource.class, 0).property("filePath", "in.jpg").codec(ImageCodec.class)
+ *       .stage(MedianFilter.class, 1).codec(ImageCodec.class)
+ *       .stage(DataSink.class, 0)
+ */
+public class PipelineDescription implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static class Stage implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String m_ClassName;
+        private final int m_Worker;
+        private String m_CodecClassName = null;
+        private final Map<String, String> m_Properties = new LinkedHashMap<String, String>();
+
+        Stage(String className, int worker) {
+            m_ClassName = className;
+            m_Worker = worker;
+        }
+
+        public String getClassName() {
+            return m_ClassName;
+        }
+
+        public String getSimpleName() {
+            return m_ClassName.substring(m_ClassName.lastIndexOf('.') + 1);
+        }
+
+        public int getWorker() {
+            return m_Worker;
+        }
+
+        /**
+         * class of the FrameCodec for the output of the stage, null for Java serialization
+         */
+        public String getCodecClassName() {
+            return m_CodecClassName;
+        }
+
+        public Map<String, String> getProperties() {
+            return Collections.unmodifiableMap(m_Properties);
+        }
+    }
+
+    private final List<Stage> m_Stages = new ArrayList<Stage>();
+
+    public PipelineDescription stage(Class<?> type, int worker) throws InvalidParameterException {
+        if (!Source.class.isAssignableFrom(type) && !AbstractFilter.class.isAssignableFrom(type) && !Sink.class.isAssignableFrom(type)) {
+            throw new InvalidParameterException(type.getName() + " is no source, filter or sink!");
+        }
+        return stage(type.getName(), worker);
+    }
+
+    public PipelineDescription stage(String className, int worker) throws InvalidParameterException {
+        if (className == null || className.isEmpty()) {
+            throw new InvalidParameterException("class name can't be empty!");
+        }
+        if (worker < 0) {
+            throw new InvalidParameterException("invalid worker " + worker + "!");
+        }
+        m_Stages.add(new Stage(className, worker));
+        return this;
+    }
+
+    /**
+     * the codec for the output of the last added stage
+     */
+    public PipelineDescription codec(Class<? extends FrameCodec<?>> codec) throws InvalidParameterException {
+        lastStage().m_CodecClassName = codec.getName();
+        return this;
+    }
+
+    /**
+     * a bean property of the last added stage (String, primitive or enum), set before the pipeline starts
+     */
+    public PipelineDescription property(String name, String value) throws InvalidParameterException {
+        lastStage().m_Properties.put(name, value);
+        return this;
+    }
+
+    private Stage lastStage() throws InvalidParameterException {
+        if (m_Stages.isEmpty()) {
+            throw new InvalidParameterException("no stage added yet!");
+        }
+        return m_Stages.get(m_Stages.size() - 1);
+    }
+
+    public List<Stage> getStages() {
+        return Collections.unmodifiableList(m_Stages);
+    }
+
+    public int getWorkerCount() {
+        int workers = 0;
+        for (Stage stage : m_Stages) {
+            workers = Math.max(workers, stage.getWorker() + 1);
+        }
+        return workers;
+    }
+}
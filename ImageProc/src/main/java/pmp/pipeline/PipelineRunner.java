@@ -0,0 +1,247 @@
+package pmp.pipeline;
+
+import pmp.filter.AbstractFilter;
+import pmp.filter.Sink;
+import pmp.filter.Source;
+import pmp.metrics.MetricsRegistry;
+import pmp.metrics.StageMetrics;
+import pmp.pipes.BoundedPipe;
+import pmp.pipes.SpscRingBufferPipe;
+
+import java.io.StreamCorruptedException;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/* runs a linear pipeline (source -> filters -> sink) with every stage as an active filter on its own thread.
+ * A pipe is inserted between every two neighbouring stages, so all stages work concurrently and the
+ * throughput of the pipeline is bounded by its slowest stage instead of the sum of all stages. Every pipe has
+ * exactly one writing and one reading stage, so by default they are lock-free SpscRingBufferPipes; any other
+ * BoundedPipe (e.g. BufferedSyncPipe) can be used through the pipe factory.
+ *
+ * lifecycle:   start() -> join()    or simply run()
+ *              cancel() breaks all pipes, which makes every blocked stage terminate
+ *
+ * error propagation: the first failure of any stage (an exception, or a stage terminating before the
+ *                    end of stream has passed) breaks all pipes and is rethrown by join()
+ *
+ * metrics: while the pipeline runs, its stages and pipes are registered with the default MetricsRegistry as
+ *          "pipeline-<n>/<index>-<stage class>" and "pipeline-<n>/pipe-<index>" (the pipe after the stage)
+ *
+ * contract: a null entity signals end of stream
+ */
+public class PipelineRunner implements Runnable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 4;
+
+    /** creates the pipes if no factory is given: capacity -> pipe */
+    public static final IntFunction<BoundedPipe<Object>> SPSC_PIPES = SpscRingBufferPipe::new;
+
+    private static final AtomicInteger s_Pipelines = new AtomicInteger();
+
+    private final List<Runnable> m_Stages = new ArrayList<Runnable>();
+    private final List<StagePipe<Object>> m_Pipes = new ArrayList<StagePipe<Object>>();
+    private final List<Thread> m_Threads = new ArrayList<Thread>();
+    private final List<String> m_MetricsNames = new ArrayList<String>();
+
+    private volatile Throwable m_Failure = null;
+    private boolean m_Started = false;
+
+    public PipelineRunner(Source<?> source, List<? extends AbstractFilter<?, ?>> filters, Sink<?> sink) throws InvalidParameterException {
+        this(source, filters, sink, DEFAULT_BUFFER_SIZE);
+    }
+
+    public PipelineRunner(Source<?> source, List<? extends AbstractFilter<?, ?>> filters, Sink<?> sink, int bufferSize) throws InvalidParameterException {
+        this(source, filters, sink, bufferSize, SPSC_PIPES);
+    }
+
+    /**
+     * @param pipes creates a pipe of the given capacity for every link between two stages
+     */
+    @SuppressWarnings("unchecked")
+    public PipelineRunner(Source<?> source, List<? extends AbstractFilter<?, ?>> filters, Sink<?> sink, int bufferSize,
+                          IntFunction<? extends BoundedPipe<Object>> pipes) throws InvalidParameterException {
+        if (source == null) {
+            throw new InvalidParameterException("source can't be null!");
+        } else if (sink == null) {
+            throw new InvalidParameterException("sink can't be null!");
+        } else if (filters == null) {
+            throw new InvalidParameterException("filters can't be null!");
+        } else if (pipes == null) {
+            throw new InvalidParameterException("pipe factory can't be null!");
+        }
+
+        StagePipe<Object> pipe = new StagePipe<Object>(pipes.apply(bufferSize));
+        ((Source<Object>) source).setOutput(pipe);
+        m_Pipes.add(pipe);
+        m_Stages.add(source);
+
+        for (AbstractFilter<?, ?> filter : filters) {
+            if (filter == null) {
+                throw new InvalidParameterException("filter can't be null!");
+            }
+            StagePipe<Object> next = new StagePipe<Object>(pipes.apply(bufferSize));
+            ((AbstractFilter<Object, Object>) filter).setInput(pipe);
+            ((AbstractFilter<Object, Object>) filter).setOutput(next);
+            m_Pipes.add(next);
+            m_Stages.add(filter);
+            pipe = next;
+        }
+
+        ((Sink<Object>) sink).setInput(pipe);
+        m_Stages.add(sink);
+    }
+
+    /**
+     * starts one thread per stage
+     */
+    public synchronized void start() {
+        if (m_Started) {
+            throw new IllegalStateException("pipeline has already been started");
+        }
+        m_Started = true;
+
+        for (int i = 0; i < m_Stages.size(); i++) {
+            Thread thread = new Thread(new StageTask(i), "pmp-stage-" + i + "-" + m_Stages.get(i).getClass().getSimpleName());
+            m_Threads.add(thread);
+        }
+        registerMetrics();
+        for (Thread thread : m_Threads) {
+            thread.start();
+        }
+    }
+
+    private void registerMetrics() {
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        String prefix = "pipeline-" + s_Pipelines.incrementAndGet() + "/";
+        for (int i = 0; i < m_Stages.size(); i++) {
+            StageMetrics metrics = metricsOf(m_Stages.get(i));
+            if (metrics != null) {
+                m_MetricsNames.add(registry.register(prefix + i + "-" + m_Stages.get(i).getClass().getSimpleName(), metrics));
+            }
+            if (i < m_Pipes.size()) {
+                m_MetricsNames.add(registry.register(prefix + "pipe-" + i, m_Pipes.get(i).getMetrics()));
+            }
+        }
+    }
+
+    private synchronized void unregisterMetrics() {
+        for (String name : m_MetricsNames) {
+            MetricsRegistry.getDefault().unregister(name);
+        }
+        m_MetricsNames.clear();
+    }
+
+    /**
+     * the metrics of a source, filter or sink, null for any other Runnable
+     */
+    static StageMetrics metricsOf(Object stage) {
+        if (stage instanceof Source) return ((Source<?>) stage).getMetrics();
+        if (stage instanceof AbstractFilter) return ((AbstractFilter<?, ?>) stage).getMetrics();
+        if (stage instanceof Sink) return ((Sink<?>) stage).getMetrics();
+        return null;
+    }
+
+    /**
+     * waits until every stage has terminated
+     *
+     * @throws StreamCorruptedException if any stage failed; the first failure is attached as cause
+     */
+    public void join() throws InterruptedException, StreamCorruptedException {
+        List<Thread> threads;
+        synchronized (this) {
+            if (!m_Started) {
+                throw new IllegalStateException("pipeline has not been started");
+            }
+            threads = new ArrayList<Thread>(m_Threads);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        unregisterMetrics();
+
+        Throwable failure = m_Failure;
+        if (failure != null) {
+            StreamCorruptedException e = new StreamCorruptedException("pipeline failed: " + failure.getMessage());
+            e.initCause(failure);
+            throw e;
+        }
+    }
+
+    /**
+     * runs the whole pipeline and blocks until it has finished
+     */
+    public void run() {
+        start();
+        try {
+            join();
+        } catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+        } catch (StreamCorruptedException e) {
+            System.out.print("Pipeline reports error: ");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * aborts the pipeline: all pipes get broken, so blocked stages terminate
+     */
+    public void cancel() {
+        fail(new StreamCorruptedException("pipeline has been cancelled"));
+    }
+
+    public synchronized boolean isRunning() {
+        if (!m_Started) return false;
+        for (Thread thread : m_Threads) {
+            if (thread.isAlive()) return true;
+        }
+        return false;
+    }
+
+    public Throwable getFailure() {
+        return m_Failure;
+    }
+
+    private void fail(Throwable cause) {
+        synchronized (this) {
+            if (m_Failure == null) {
+                m_Failure = cause;
+            }
+        }
+        for (StagePipe<Object> pipe : m_Pipes) {
+            pipe.breakPipe();
+        }
+    }
+
+    /*
+     * runs one stage and detects failures, even those the stage only reports on stdout
+     */
+    private class StageTask implements Runnable {
+        private final int m_Index;
+
+        StageTask(int index) {
+            m_Index = index;
+        }
+
+        public void run() {
+            Runnable stage = m_Stages.get(m_Index);
+            try {
+                stage.run();
+            } catch (Throwable t) {
+                fail(t);
+                return;
+            }
+
+            // the stages catch their StreamCorruptedExceptions themselves, so a stage which finished
+            // without passing the ending signal downstream (or the sink without getting through it) has failed
+            boolean isSink = m_Index == m_Stages.size() - 1;
+            boolean completed = isSink ? ((Sink<?>) stage).hasCompleted() : m_Pipes.get(m_Index).hasSeenEndingSignal();
+            if (!completed && m_Failure == null) {
+                fail(new StreamCorruptedException("stage " + Thread.currentThread().getName() + " terminated before end of stream"));
+            }
+        }
+    }
+}
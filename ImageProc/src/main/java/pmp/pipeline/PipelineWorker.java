@@ -0,0 +1,470 @@
+package pmp.pipeline;
+
+import pmp.filter.AbstractFilter;
+import pmp.filter.Sink;
+import pmp.filter.Source;
+import pmp.interfaces.Readable;
+import pmp.interfaces.Writeable;
+import pmp.metrics.MetricsRegistry;
+import pmp.metrics.StageMetrics;
+import pmp.pipes.FrameCodec;
+import pmp.pipes.SerializingCodec;
+import pmp.pipes.SocketPipe;
+
+import java.beans.BeanInfo;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/* a JVM which runs its part of a distributed pipeline for a PipelineCoordinator.
+ *
+ * the worker listens on a control port for the coordinator and on a data port for the connections from other
+ * workers. For every pipeline the coordinator sends the description and the data addresses of all workers; the
+ * worker creates its stages, connects neighbouring stages on this worker like PipelineRunner does and stages on
+ * different workers with SocketPipes (the upstream worker connects), runs every stage on its own thread and sends
+ * back a StageReport per stage, or the first failure.
+ *
+ * while a pipeline runs, its local stages and pipes are registered with the default MetricsRegistry of the worker as
+ * "run-<n>/<index>-<stage class>" and "run-<n>/pipe-<index>" (the pipe after the stage, local or the socket).
+ *
+ * started with "java pmp.pipeline.PipelineWorker [controlPort]", it prints "pmp-worker <controlPort>" once it is
+ * listening and serves coordinators until one of them sends EXIT.
+ */
+public class PipelineWorker {
+
+    public static final String ANNOUNCEMENT = "pmp-worker";
+    static final String EXIT = "EXIT";
+
+    private static final int LINK_TIMEOUT_MILLIS = 60000;
+
+    private final ServerSocket m_Control;
+    private final ServerSocket m_Data;
+    private final Map<Long, SocketChannel> m_Links = new HashMap<Long, SocketChannel>();
+
+    public PipelineWorker(int controlPort) throws IOException {
+        m_Control = new ServerSocket(controlPort);
+        m_Data = ServerSocketChannel.open().bind(new InetSocketAddress(0)).socket();
+        m_Data.setSoTimeout(LINK_TIMEOUT_MILLIS);
+    }
+
+    public int getControlPort() {
+        return m_Control.getLocalPort();
+    }
+
+    /**
+     * serves one coordinator after the other until one sends EXIT
+     */
+    public void serve() throws IOException {
+        while (true) {
+            try (Socket connection = m_Control.accept()) {
+                if (serve(connection)) {
+                    return;
+                }
+            } catch (SocketException e) {
+                System.err.println("pmp-worker: lost the coordinator: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return true if the coordinator sent EXIT
+     */
+    private boolean serve(Socket connection) throws IOException {
+        ObjectOutputStream out = new ObjectOutputStream(connection.getOutputStream());
+        out.writeInt(m_Data.getLocalPort());
+        out.flush();
+        ObjectInputStream in = new ObjectInputStream(connection.getInputStream());
+
+        while (true) {
+            Object message;
+            try {
+                message = in.readObject();
+            } catch (EOFException e) {
+                return false;       // coordinator is gone
+            } catch (ClassNotFoundException e) {
+                throw new IOException("unknown message from coordinator: " + e.getMessage(), e);
+            }
+
+            if (EXIT.equals(message)) {
+                return true;
+            }
+            Object result;
+            try {
+                result = run((Assignment) message);
+            } catch (Exception e) {
+                result = new StreamCorruptedException(e.getClass().getSimpleName() + ": " + e.getMessage());
+            }
+            out.writeObject(result);
+            out.reset();
+            out.flush();
+        }
+    }
+
+    /**
+     * runs the stages of this worker until they have terminated
+     */
+    @SuppressWarnings("unchecked")
+    private ArrayList<StageReport> run(Assignment assignment) throws Exception {
+        List<PipelineDescription.Stage> stages = assignment.m_Description.getStages();
+        int last = stages.size() - 1;
+        int me = assignment.m_Worker;
+        Part part = new Part(stages.size());
+
+        try {
+            for (int i = 0; i <= last; i++) {
+                if (stages.get(i).getWorker() == me) {
+                    part.m_Stages[i] = create(stages.get(i), i, last);
+                }
+            }
+
+            // outgoing links first: connecting does not wait for the other worker to accept
+            for (int i = 0; i < last; i++) {
+                if (stages.get(i).getWorker() == me && stages.get(i + 1).getWorker() != me) {
+                    SocketChannel channel = SocketChannel.open(assignment.m_DataAddresses.get(stages.get(i + 1).getWorker()));
+                    ByteBuffer header = ByteBuffer.allocate(8);
+                    header.putLong(linkKey(assignment.m_Run, i)).flip();
+                    while (header.hasRemaining()) {
+                        channel.write(header);
+                    }
+                    part.m_Outputs[i] = part.remote(new SocketPipe<Object>(channel, SocketPipe.DEFAULT_WINDOW, codec(stages.get(i))));
+                }
+            }
+            for (int i = 1; i <= last; i++) {
+                if (stages.get(i).getWorker() == me && stages.get(i - 1).getWorker() != me) {
+                    SocketChannel channel = awaitLink(linkKey(assignment.m_Run, i - 1));
+                    part.m_Inputs[i] = part.remote(new SocketPipe<Object>(channel, SocketPipe.DEFAULT_WINDOW, codec(stages.get(i - 1))));
+                }
+            }
+            for (int i = 0; i < last; i++) {
+                if (stages.get(i).getWorker() == me && stages.get(i + 1).getWorker() == me) {
+                    StagePipe<Object> pipe = new StagePipe<Object>(PipelineRunner.SPSC_PIPES.apply(PipelineRunner.DEFAULT_BUFFER_SIZE));
+                    part.m_Local.add(pipe);
+                    part.m_Outputs[i] = pipe;
+                    part.m_Inputs[i + 1] = pipe;
+                }
+            }
+        } catch (Exception e) {
+            part.fail(e);
+            abandonLinks(assignment, part);
+            throw e;
+        }
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i <= last; i++) {
+            Object stage = part.m_Stages[i];
+            if (stage == null) continue;
+
+            Counter counter = new Counter(i == last ? part.m_Inputs[i] : null, i == last ? null : part.m_Outputs[i]);
+            part.m_Counters[i] = counter;
+            if (stage instanceof Source) {
+                ((Source<Object>) stage).setOutput(counter);
+            } else if (stage instanceof Sink) {
+                ((Sink<Object>) stage).setInput(counter);
+            } else {
+                ((AbstractFilter<Object, Object>) stage).setInput(part.m_Inputs[i]);
+                ((AbstractFilter<Object, Object>) stage).setOutput(counter);
+            }
+            threads.add(new Thread(part.task(i, stages.get(i).getSimpleName()), "pmp-stage-" + i + "-" + stages.get(i).getSimpleName()));
+        }
+
+        List<String> metricsNames = registerMetrics(part, stages, assignment.m_Run);
+        part.m_Start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (String name : metricsNames) {
+            MetricsRegistry.getDefault().unregister(name);
+        }
+
+        if (part.m_Failure != null) {
+            throw part.m_Failure instanceof Exception ? (Exception) part.m_Failure : new Exception(part.m_Failure);
+        }
+        ArrayList<StageReport> reports = new ArrayList<StageReport>();
+        for (int i = 0; i <= last; i++) {
+            if (part.m_Stages[i] != null) {
+                reports.add(new StageReport(i, stages.get(i).getSimpleName(), me, part.m_Counters[i].m_Items, part.m_Ends[i] - part.m_Start));
+            }
+        }
+        return reports;
+    }
+
+    private static List<String> registerMetrics(Part part, List<PipelineDescription.Stage> stages, int run) {
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        List<String> names = new ArrayList<String>();
+        String prefix = "run-" + run + "/";
+        for (int i = 0; i < stages.size(); i++) {
+            StageMetrics metrics = PipelineRunner.metricsOf(part.m_Stages[i]);
+            if (metrics != null) {
+                names.add(registry.register(prefix + i + "-" + stages.get(i).getSimpleName(), metrics));
+            }
+            if (part.m_Inputs[i] instanceof SocketPipe) {
+                // the reading end of the pipe after the previous stage on another worker
+                names.add(registry.register(prefix + "pipe-" + (i - 1) + "-in", ((SocketPipe<Object>) part.m_Inputs[i]).getMetrics()));
+            }
+            if (part.m_Outputs[i] instanceof StagePipe) {
+                names.add(registry.register(prefix + "pipe-" + i, ((StagePipe<Object>) part.m_Outputs[i]).getMetrics()));
+            } else if (part.m_Outputs[i] instanceof SocketPipe) {
+                names.add(registry.register(prefix + "pipe-" + i, ((SocketPipe<Object>) part.m_Outputs[i]).getMetrics()));
+            }
+        }
+        return names;
+    }
+
+    /**
+     * closes the incoming links a failed part has not taken yet; their upstream workers would wait for
+     * acknowledgements forever
+     */
+    private void abandonLinks(Assignment assignment, Part part) {
+        List<PipelineDescription.Stage> stages = assignment.m_Description.getStages();
+        for (int i = 1; i < stages.size(); i++) {
+            if (stages.get(i).getWorker() == assignment.m_Worker && stages.get(i - 1).getWorker() != assignment.m_Worker
+                    && part.m_Inputs[i] == null) {
+                try {
+                    awaitLink(linkKey(assignment.m_Run, i - 1)).close();
+                } catch (IOException e) {
+                    // the upstream worker has failed as well
+                }
+            }
+        }
+    }
+
+    private static long linkKey(int run, int link) {
+        return ((long) run << 32) | link;
+    }
+
+    /**
+     * the connection for the link; connections for other links are kept until they are needed
+     */
+    private SocketChannel awaitLink(long key) throws IOException {
+        while (!m_Links.containsKey(key)) {
+            SocketChannel channel;
+            try {
+                channel = m_Data.accept().getChannel();
+            } catch (SocketTimeoutException e) {
+                throw new IOException("upstream worker did not connect link " + (int) key + " in time");
+            }
+            ByteBuffer header = ByteBuffer.allocate(8);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    throw new EOFException("link closed before its header");
+                }
+            }
+            header.flip();
+            m_Links.put(header.getLong(), channel);
+        }
+        return m_Links.remove(key);
+    }
+
+    private static Object create(PipelineDescription.Stage stage, int index, int last) throws Exception {
+        Class<?> type = Class.forName(stage.getClassName());
+        Class<?> expected = index == 0 ? Source.class : index == last ? Sink.class : AbstractFilter.class;
+        if (!expected.isAssignableFrom(type)) {
+            throw new InvalidParameterException("stage " + index + " (" + type.getName() + ") must be a " + expected.getSimpleName());
+        }
+        Object instance = type.getConstructor().newInstance();
+
+        if (!stage.getProperties().isEmpty()) {
+            BeanInfo info = Introspector.getBeanInfo(type);
+            for (Map.Entry<String, String> property : stage.getProperties().entrySet()) {
+                Method setter = null;
+                for (PropertyDescriptor descriptor : info.getPropertyDescriptors()) {
+                    if (descriptor.getName().equals(property.getKey())) {
+                        setter = descriptor.getWriteMethod();
+                    }
+                }
+                if (setter == null) {
+                    throw new InvalidParameterException(type.getName() + " has no property " + property.getKey());
+                }
+                setter.invoke(instance, convert(property.getValue(), setter.getParameterTypes()[0]));
+            }
+        }
+        return instance;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object convert(String value, Class<?> type) {
+        if (type == String.class) return value;
+        if (type == int.class || type == Integer.class) return Integer.valueOf(value);
+        if (type == long.class || type == Long.class) return Long.valueOf(value);
+        if (type == double.class || type == Double.class) return Double.valueOf(value);
+        if (type == float.class || type == Float.class) return Float.valueOf(value);
+        if (type == boolean.class || type == Boolean.class) return Boolean.valueOf(value);
+        if (type.isEnum()) return Enum.valueOf((Class<Enum>) type, value);
+        throw new InvalidParameterException("can't set a property of type " + type.getName());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static FrameCodec<Object> codec(PipelineDescription.Stage stage) throws Exception {
+        if (stage.getCodecClassName() == null) {
+            return new SerializingCodec<Object>();
+        }
+        return (FrameCodec<Object>) Class.forName(stage.getCodecClassName()).getConstructor().newInstance();
+    }
+
+    public static void main(String[] args) throws IOException {
+        PipelineWorker worker = new PipelineWorker(args.length > 0 ? Integer.parseInt(args[0]) : 0);
+        System.out.println(ANNOUNCEMENT + " " + worker.getControlPort());
+        System.out.flush();
+        worker.serve();
+        System.exit(0);
+    }
+
+    /*
+     * what the coordinator sends for every pipeline
+     */
+    static class Assignment implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        final PipelineDescription m_Description;
+        final int m_Worker;
+        final int m_Run;
+        final List<InetSocketAddress> m_DataAddresses;
+
+        Assignment(PipelineDescription description, int worker, int run, List<InetSocketAddress> dataAddresses) {
+            m_Description = description;
+            m_Worker = worker;
+            m_Run = run;
+            m_DataAddresses = dataAddresses;
+        }
+    }
+
+    /*
+     * the stages of this worker and their connections for one pipeline
+     */
+    private static class Part {
+        final Object[] m_Stages;
+        final Readable<Object>[] m_Inputs;
+        final Writeable<Object>[] m_Outputs;
+        final Counter[] m_Counters;
+        final long[] m_Ends;
+        final List<StagePipe<Object>> m_Local = new ArrayList<StagePipe<Object>>();
+        final List<SocketPipe<Object>> m_Remote = new ArrayList<SocketPipe<Object>>();
+        volatile Throwable m_Failure = null;
+        long m_Start;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Part(int stages) {
+            m_Stages = new Object[stages];
+            m_Inputs = new Readable[stages];
+            m_Outputs = new Writeable[stages];
+            m_Counters = new Counter[stages];
+            m_Ends = new long[stages];
+        }
+
+        synchronized SocketPipe<Object> remote(SocketPipe<Object> pipe) {
+            m_Remote.add(pipe);
+            return pipe;
+        }
+
+        /**
+         * breaks all pipes of this worker, so its stages and the stages of the other workers terminate
+         */
+        void fail(Throwable cause) {
+            synchronized (this) {
+                if (m_Failure == null) {
+                    m_Failure = cause;
+                }
+            }
+            for (StagePipe<Object> pipe : m_Local) {
+                pipe.breakPipe();
+            }
+            for (SocketPipe<Object> pipe : m_Remote) {
+                try {
+                    pipe.close();
+                } catch (IOException e) {
+                    // closing anyway
+                }
+            }
+        }
+
+        Runnable task(int index, String name) {
+            return () -> {
+                try {
+                    ((Runnable) m_Stages[index]).run();
+                } catch (Throwable t) {
+                    fail(t);
+                    return;
+                } finally {
+                    m_Ends[index] = System.nanoTime();
+                }
+                // the stages catch their StreamCorruptedExceptions themselves (see PipelineRunner); the sink has
+                // read the ending signal before writing its last batch, so it has to report its completion itself
+                Object stage = m_Stages[index];
+                boolean completed = stage instanceof Sink ? ((Sink<?>) stage).hasCompleted() : m_Counters[index].m_EndingSignal;
+                if (!completed && m_Failure == null) {
+                    fail(new StreamCorruptedException("stage " + index + " (" + name + ") terminated before end of stream"));
+                }
+            };
+        }
+    }
+
+    /*
+     * counts the entities a stage writes (or the sink reads) and notices the ending signal
+     */
+    private static class Counter implements Readable<Object>, Writeable<Object> {
+        private final Readable<Object> m_Input;
+        private final Writeable<Object> m_Output;
+        volatile long m_Items = 0;
+        volatile boolean m_EndingSignal = false;
+
+        Counter(Readable<Object> input, Writeable<Object> output) {
+            m_Input = input;
+            m_Output = output;
+        }
+
+        public Object read() throws StreamCorruptedException {
+            return count(m_Input.read());
+        }
+
+        public List<Object> readBatch(int max) throws StreamCorruptedException {
+            List<Object> values = m_Input.readBatch(max);
+            for (Object value : values) {
+                count(value);
+            }
+            return values;
+        }
+
+        public void write(Object value) throws StreamCorruptedException {
+            m_Output.write(value);
+            count(value);
+        }
+
+        public void writeBatch(List<Object> values) throws StreamCorruptedException {
+            m_Output.writeBatch(values);
+            for (Object value : values) {
+                count(value);
+            }
+        }
+
+        private Object count(Object value) {
+            if (value == null) {
+                m_EndingSignal = true;
+            } else {
+                m_Items++;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package pmp.pipeline;
+
+import pmp.interfaces.IOable;
+import pmp.metrics.PipeMetrics;
+import pmp.pipes.BoundedPipe;
+
+import java.io.StreamCorruptedException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * the pipe between two stages of PipelineRunner and PipelineWorker: any BoundedPipe, which in addition remembers
+ * whether the ending signal went through it and keeps the PipeMetrics of the link.
+ *
+ * the flag is set before the ending signal is handed to the pipe, so the reader can't take the ending signal and
+ * terminate before the flag is visible (a write only fails on a pipe broken because of an earlier failure).
+ *
+ * the metrics add no shared writes to a handoff: the writer and the reader each count on a cache line of their
+ * own, the waits are counted by the pipe on its waiting path, and the depth is taken from the pipe when it is
+ * asked for. The high-water mark is sampled by the writer every SAMPLE_INTERVAL entities.
+ *
+ * contract: a null entity signals end of stream
+ */
+class StagePipe<T> implements IOable<T, T> {
+
+    private static final int SAMPLE_INTERVAL = 64;
+
+    private final BoundedPipe<T> m_Pipe;
+    private final Metrics m_Metrics;
+    private volatile boolean m_EndingSignal = false;
+
+    private final PaddedCount m_Written = new PaddedCount();    // only written by the writer
+    private final PaddedCount m_Read = new PaddedCount();       // only written by the reader
+    private volatile int m_HighWaterMark = 0;                   // only written by the writer (and reset())
+    private long m_NextSample = SAMPLE_INTERVAL;                // only touched by the writer
+
+    StagePipe(BoundedPipe<T> pipe) {
+        m_Pipe = pipe;
+        m_Metrics = new Metrics(pipe.capacity());
+    }
+
+    public void write(T value) throws StreamCorruptedException {
+        if (value == null) {
+            m_EndingSignal = true;
+        }
+        m_Pipe.write(value);
+        written(1);
+    }
+
+    public void writeBatch(List<T> values) throws StreamCorruptedException {
+        if (!values.isEmpty() && values.get(values.size() - 1) == null) {
+            m_EndingSignal = true;
+        }
+        m_Pipe.writeBatch(values);
+        written(values.size());
+    }
+
+    private void written(int count) {
+        long written = m_Written.get() + count;
+        m_Written.lazySet(written);
+        if (written >= m_NextSample) {
+            m_NextSample = written + SAMPLE_INTERVAL;
+            int depth = m_Pipe.size();
+            if (depth > m_HighWaterMark) {
+                m_HighWaterMark = depth;
+            }
+        }
+    }
+
+    public T read() throws StreamCorruptedException {
+        T value = m_Pipe.read();
+        m_Read.lazySet(m_Read.get() + 1);
+        return value;
+    }
+
+    public List<T> readBatch(int max) throws StreamCorruptedException {
+        List<T> values = m_Pipe.readBatch(max);
+        m_Read.lazySet(m_Read.get() + values.size());
+        return values;
+    }
+
+    void breakPipe() {
+        m_Pipe.breakPipe();
+    }
+
+    boolean hasSeenEndingSignal() {
+        return m_EndingSignal;
+    }
+
+    /**
+     * the ending signal counts as an entity; a full wait is a write which had to wait for room
+     */
+    PipeMetrics getMetrics() {
+        return m_Metrics;
+    }
+
+    /*
+     * a counter on a cache line of its own
+     */
+    @SuppressWarnings("unused")
+    private static final class PaddedCount extends AtomicLong {
+        private static final long serialVersionUID = 1L;
+
+        private long p1, p2, p3, p4, p5, p6, p7;
+    }
+
+    /*
+     * reads the counters of the pipe when asked; reset() only moves the baselines
+     */
+    private class Metrics extends PipeMetrics {
+        private volatile long m_WrittenBase = 0;
+        private volatile long m_ReadBase = 0;
+        private volatile long m_FullWaitsBase = 0;
+        private volatile long m_EmptyWaitsBase = 0;
+
+        Metrics(int capacity) {
+            super(capacity);
+        }
+
+        @Override
+        public int getDepth() {
+            return m_Pipe.size();
+        }
+
+        @Override
+        public int getHighWaterMark() {
+            return Math.max(m_HighWaterMark, getDepth());
+        }
+
+        @Override
+        public long getItemsWritten() {
+            return m_Written.get() - m_WrittenBase;
+        }
+
+        @Override
+        public long getItemsRead() {
+            return m_Read.get() - m_ReadBase;
+        }
+
+        @Override
+        public long getFullWaits() {
+            return m_Pipe.fullWaits() - m_FullWaitsBase;
+        }
+
+        @Override
+        public long getEmptyWaits() {
+            return m_Pipe.emptyWaits() - m_EmptyWaitsBase;
+        }
+
+        @Override
+        public void reset() {
+            m_HighWaterMark = getDepth();
+            m_WrittenBase = m_Written.get();
+            m_ReadBase = m_Read.get();
+            m_FullWaitsBase = m_Pipe.fullWaits();
+            m_EmptyWaitsBase = m_Pipe.emptyWaits();
+        }
+    }
+}
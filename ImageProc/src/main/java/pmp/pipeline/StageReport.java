@@ -0,0 +1,56 @@
+package pmp.pipeline;
+
+import java.io.Serializable;
+import java.util.Locale;
+
+/* what a stage of a distributed pipeline did: the entities it passed on (the sink: the entities it took) and the
+ * time from the start of its worker's part of the pipeline until the stage terminated
+ */
+public class StageReport implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int m_Index;
+    private final String m_Name;
+    private final int m_Worker;
+    private final long m_Items;
+    private final long m_Nanos;
+
+    public StageReport(int index, String name, int worker, long items, long nanos) {
+        m_Index = index;
+        m_Name = name;
+        m_Worker = worker;
+        m_Items = items;
+        m_Nanos = nanos;
+    }
+
+    public int getIndex() {
+        return m_Index;
+    }
+
+    public String getName() {
+        return m_Name;
+    }
+
+    public int getWorker() {
+        return m_Worker;
+    }
+
+    public long getItems() {
+        return m_Items;
+    }
+
+    public long getNanos() {
+        return m_Nanos;
+    }
+
+    public double getItemsPerSecond() {
+        return m_Nanos == 0 ? 0 : m_Items * 1e9 / m_Nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "stage %d %s (worker %d): %d items in %.3f s, %.1f items/s",
+                m_Index, m_Name, m_Worker, m_Items, m_Nanos / 1e9, getItemsPerSecond());
+    }
+}
@@ -0,0 +1,314 @@
+package pmp.pipes;
+
+import pmp.interfaces.IOable;
+
+import java.io.StreamCorruptedException;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/*
+ * pipelined access to a remote pipe (e.g. a RemotePipeProxy), so the stages on both sides are limited by the
+ * bandwidth of the link and not by its round trip time.
+ *
+ * writing: write() returns as soon as the entity is queued, while at most maxInFlight entities are queued or on
+ * their way (otherwise it waits). One sender thread passes everything queued to the remote pipe with a single
+ * writeBatch call and reports every acknowledged call or failure to the AckListener as it happens. A failure is
+ * also thrown by the next write; writing the ending signal waits until all entities are acknowledged.
+ *
+ * reading: with the first read a prefetch thread starts reading batches of up to prefetch entities ahead, which
+ * the reads take from a local queue. A proxy only used for writing never reads from the remote pipe. A read failure
+ * stays in the queue, so it is thrown by every later read.
+ *
+ * close() stops both threads and wakes up blocked readers and writers, which then fail.
+ *
+ * contract: a null entity signals end of stream
+ */
+public class AsyncPipeProxy<T> implements IOable<T, T>, AutoCloseable {
+
+    public interface AckListener {
+        /**
+         * the remote pipe has accepted count more entities, total since the start
+         */
+        void acknowledged(int count, long total);
+
+        void failed(StreamCorruptedException e);
+    }
+
+    private static final Object FAILURE = new Object();
+    private static final Object CLOSED = new Object();
+
+    private final IOable<T, T> m_Remote;
+    private final int m_MaxInFlight;
+    private final int m_Prefetch;
+
+    // writing
+    private final BlockingQueue<Object> m_Outbox = new LinkedBlockingQueue<Object>();
+    private final Semaphore m_InFlight;
+    private volatile AckListener m_Listener = null;
+    private volatile StreamCorruptedException m_WriteFailure = null;
+    private Thread m_Sender = null;
+    private long m_Acknowledged = 0;      // guarded by m_Outbox
+    private long m_Queued = 0;            // guarded by m_Outbox
+
+    // reading
+    private final BlockingQueue<Object> m_Inbox;
+    private final Object m_ReadLock = new Object();     // not this: close() must not wait for a blocked reader
+    private volatile StreamCorruptedException m_ReadFailure = null;
+    private volatile Thread m_Prefetcher = null;
+    private boolean m_EndRead = false;                  // guarded by m_ReadLock
+
+    private volatile boolean m_Closed = false;
+
+    public AsyncPipeProxy(IOable<T, T> remote, int maxInFlight, int prefetch) throws InvalidParameterException {
+        if (remote == null) {
+            throw new InvalidParameterException("remote pipe can't be null!");
+        }
+        m_Remote = remote;
+        m_MaxInFlight = Math.max(maxInFlight, 1);
+        m_Prefetch = Math.max(prefetch, 1);
+        m_InFlight = new Semaphore(m_MaxInFlight);
+        m_Inbox = new ArrayBlockingQueue<Object>(m_Prefetch);
+    }
+
+    public AsyncPipeProxy(String remoteAdr, String remotePipeName, FrameCodec<T> codec, int maxInFlight, int prefetch) throws StreamCorruptedException {
+        this(new RemotePipeProxy<T>(remoteAdr, remotePipeName, codec), maxInFlight, prefetch);
+    }
+
+    public void setAckListener(AckListener listener) {
+        m_Listener = listener;
+    }
+
+    /**
+     * number of entities the remote pipe has accepted so far
+     */
+    public long getAcknowledged() {
+        synchronized (m_Outbox) {
+            return m_Acknowledged;
+        }
+    }
+
+    public void write(T value) throws StreamCorruptedException {
+        checkWriteFailure();
+        try {
+            m_InFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StreamCorruptedException("interrupted while waiting for acknowledgements");
+        }
+        synchronized (m_Outbox) {
+            if (m_Sender == null) {
+                m_Sender = startThread(this::send, "pmp-async-write");
+            }
+            m_Queued++;
+            m_Outbox.add(RingBufferSupport.encode(value));
+        }
+        if (value == null) {
+            flush();
+        }
+    }
+
+    public void writeBatch(List<T> values) throws StreamCorruptedException {
+        for (T value : values) {
+            write(value);
+        }
+    }
+
+    /**
+     * waits until all written entities are acknowledged
+     */
+    public void flush() throws StreamCorruptedException {
+        synchronized (m_Outbox) {
+            while (m_Acknowledged < m_Queued && m_WriteFailure == null) {
+                try {
+                    m_Outbox.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new StreamCorruptedException("interrupted while waiting for acknowledgements");
+                }
+            }
+        }
+        checkWriteFailure();
+    }
+
+    private void checkWriteFailure() throws StreamCorruptedException {
+        StreamCorruptedException failure = m_WriteFailure;
+        if (failure != null) {
+            StreamCorruptedException sce = new StreamCorruptedException("writing to the remote pipe failed: " + failure.getMessage());
+            sce.initCause(failure);
+            throw sce;
+        }
+    }
+
+    /**
+     * the sender thread
+     */
+    private void send() {
+        List<Object> queued = new ArrayList<Object>();
+        List<T> batch = new ArrayList<T>();
+        boolean end = false;
+        while (!end) {
+            try {
+                queued.add(m_Outbox.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            m_Outbox.drainTo(queued);
+
+            for (Object item : queued) {
+                T value = RingBufferSupport.decode(item);
+                batch.add(value);
+                if (value == null) {
+                    end = true;         // nothing may follow the ending signal
+                    break;
+                }
+            }
+            queued.clear();
+
+            long total;
+            try {
+                m_Remote.writeBatch(batch);
+            } catch (StreamCorruptedException e) {
+                m_WriteFailure = e;
+                synchronized (m_Outbox) {
+                    m_Outbox.notifyAll();
+                }
+                m_InFlight.release(m_MaxInFlight);      // nobody waits for a broken pipe
+                AckListener listener = m_Listener;
+                if (listener != null) listener.failed(e);
+                return;
+            }
+            synchronized (m_Outbox) {
+                m_Acknowledged += batch.size();
+                total = m_Acknowledged;
+                m_Outbox.notifyAll();
+            }
+            m_InFlight.release(batch.size());
+            AckListener listener = m_Listener;
+            if (listener != null) listener.acknowledged(batch.size(), total);
+            batch.clear();
+        }
+    }
+
+    public T read() throws StreamCorruptedException {
+        synchronized (m_ReadLock) {
+            if (m_EndRead) return null;
+            return take(nextPrefetched());
+        }
+    }
+
+    /**
+     * one entity, waiting if needed, and all other prefetched ones (at most max)
+     */
+    public List<T> readBatch(int max) throws StreamCorruptedException {
+        synchronized (m_ReadLock) {
+            List<T> batch = new ArrayList<T>();
+            if (m_EndRead) {
+                batch.add(null);
+                return batch;
+            }
+            T value = take(nextPrefetched());
+            batch.add(value);
+            while (value != null && batch.size() < max) {
+                Object item = m_Inbox.poll();
+                if (item == null) break;
+                if (item == FAILURE || item == CLOSED) {
+                    m_Inbox.offer(item);        // thrown by the next read, after the entities before it
+                    break;
+                }
+                value = take(item);
+                batch.add(value);
+            }
+            return batch;
+        }
+    }
+
+    private Object nextPrefetched() throws StreamCorruptedException {
+        if (m_Prefetcher == null && !m_Closed) {
+            m_Prefetcher = startThread(this::prefetch, "pmp-async-read");
+        }
+        try {
+            return m_Inbox.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StreamCorruptedException("interrupted while waiting for the remote pipe");
+        }
+    }
+
+    private T take(Object item) throws StreamCorruptedException {
+        if (item == CLOSED) {
+            m_Inbox.offer(item);        // nothing follows it, so there is room
+            throw new StreamCorruptedException("the pipe proxy is closed");
+        }
+        if (item == FAILURE) {
+            m_Inbox.offer(item);
+            StreamCorruptedException sce = new StreamCorruptedException("reading from the remote pipe failed: " + m_ReadFailure.getMessage());
+            sce.initCause(m_ReadFailure);
+            throw sce;
+        }
+        T value = RingBufferSupport.decode(item);
+        if (value == null) {
+            m_EndRead = true;
+        }
+        return value;
+    }
+
+    /**
+     * the prefetch thread
+     */
+    private void prefetch() {
+        try {
+            while (true) {
+                List<T> batch;
+                try {
+                    batch = m_Remote.readBatch(m_Prefetch);
+                } catch (StreamCorruptedException e) {
+                    if (m_Closed) return;
+                    m_ReadFailure = e;
+                    m_Inbox.put(FAILURE);
+                    return;
+                }
+                for (T value : batch) {
+                    if (m_Closed) return;
+                    m_Inbox.put(RingBufferSupport.encode(value));
+                    if (value == null) return;
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed
+        }
+    }
+
+    private static Thread startThread(Runnable task, String name) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * stops sending and prefetching; entities not acknowledged yet may be lost
+     */
+    @Override
+    public void close() {
+        m_Closed = true;
+        synchronized (m_Outbox) {
+            if (m_Sender != null) m_Sender.interrupt();
+            if (m_WriteFailure == null) {
+                m_WriteFailure = new StreamCorruptedException("the pipe proxy is closed");
+            }
+            m_Outbox.notifyAll();
+        }
+        m_InFlight.release(m_MaxInFlight);
+
+        Thread prefetcher = m_Prefetcher;
+        if (prefetcher != null) prefetcher.interrupt();
+        while (!m_Inbox.offer(CLOSED)) {
+            m_Inbox.clear();        // prefetched entities are dropped, blocked readers wake up
+        }
+    }
+}
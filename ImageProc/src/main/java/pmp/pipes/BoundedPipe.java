@@ -0,0 +1,37 @@
+package pmp.pipes;
+
+import pmp.interfaces.IOable;
+
+/*
+ * a pipe with a buffer of fixed capacity which can be broken to make its blocked reader and writer terminate
+ * (BufferedSyncPipe, SpscRingBufferPipe, MpmcRingBufferPipe)
+ *
+ * contract: a null entity signals end of stream
+ */
+public interface BoundedPipe<T> extends IOable<T, T> {
+
+    int capacity();
+
+    /**
+     * number of buffered entities; a snapshot if other threads use the pipe
+     */
+    int size();
+
+    /**
+     * number of writes which found the pipe full and had to wait; counted on the waiting path only
+     */
+    long fullWaits();
+
+    /**
+     * number of reads which found the pipe empty and had to wait; counted on the waiting path only
+     */
+    long emptyWaits();
+
+    /**
+     * every blocked and every further write fails with a StreamCorruptedException,
+     * reads fail as soon as the remaining buffer is drained
+     */
+    void breakPipe();
+
+    boolean isBroken();
+}
@@ -1,22 +1,50 @@
 package pmp.pipes;
 
-import pmp.interfaces.IOable;
+import pmp.metrics.PipeMetrics;
 
 import java.io.StreamCorruptedException;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 
-public class BufferedSyncPipe<T> implements IOable<T, T> {
+public class BufferedSyncPipe<T> implements BoundedPipe<T> {
 
 	private static final int minBufferSize = 1;
 	private int m_MaxBufSize = 0;
 	
 	private LinkedList<T> m_Buf = new LinkedList<T>();
+	private boolean m_Broken = false;
+	private final PipeMetrics m_Metrics;
 	
 	public BufferedSyncPipe(int maxBufferSize) {
 		super();
 		m_MaxBufSize = Math.max(maxBufferSize, minBufferSize);
+		m_Metrics = new PipeMetrics(m_MaxBufSize);
+	}
+
+	/**
+	 * depth, high-water mark and waits of this pipe; the ending signal counts as an entity
+	 */
+	public PipeMetrics getMetrics(){
+		return m_Metrics;
 	}
 	
+	public int capacity(){
+		return m_MaxBufSize;
+	}
+
+	public synchronized int size(){
+		return m_Buf.size();
+	}
+
+	public long fullWaits(){
+		return m_Metrics.getFullWaits();
+	}
+
+	public long emptyWaits(){
+		return m_Metrics.getEmptyWaits();
+	}
+
 	public synchronized boolean isFull(){
 		return m_Buf.size() == m_MaxBufSize;
 	}
@@ -26,23 +54,99 @@ public class BufferedSyncPipe<T> implements IOable<T, T> {
 	}
 
 	public synchronized T read() throws StreamCorruptedException {
-		while(isEmpty()){
+		if (isEmpty())
+			m_Metrics.waitedEmpty();
+		while(isEmpty() && !m_Broken){
 			try {
 				wait();
 			} catch (InterruptedException e) {}
 		}
+		if (isEmpty())
+			throw new StreamCorruptedException("pipe is broken");
 		T obj = m_Buf.removeFirst();
+		m_Metrics.read(1, m_Buf.size());
 		notifyAll(); 	// waiting in write
 		return obj;
 	}
 
 	public synchronized void write(T value) throws StreamCorruptedException {
-		while(isFull()){
+		if (isFull())
+			m_Metrics.waitedFull();
+		while(isFull() && !m_Broken){
 			try{
 				wait();
 			} catch (InterruptedException e){}
 		}
+		if (m_Broken)
+			throw new StreamCorruptedException("pipe is broken");
 		 m_Buf.addLast(value);
+		m_Metrics.written(1, m_Buf.size());
+		notifyAll();	// waiting in read
+	}
+
+	/**
+	 * takes all buffered entities (at most max) with a single lock acquisition. Stops after the ending signal.
+	 */
+	public synchronized List<T> readBatch(int max) throws StreamCorruptedException {
+		if (isEmpty())
+			m_Metrics.waitedEmpty();
+		while(isEmpty() && !m_Broken){
+			try {
+				wait();
+			} catch (InterruptedException e) {}
+		}
+		if (isEmpty())
+			throw new StreamCorruptedException("pipe is broken");
+
+		int count = Math.min(Math.max(max, 1), m_Buf.size());
+		List<T> batch = new ArrayList<T>(count);
+		for (int i = 0; i < count; i++) {
+			T obj = m_Buf.removeFirst();
+			batch.add(obj);
+			if (obj == null)
+				break;
+		}
+		m_Metrics.read(batch.size(), m_Buf.size());
+		notifyAll();	// waiting in write
+		return batch;
+	}
+
+	/**
+	 * puts all values into the buffer, waiting only whenever the buffer is full
+	 */
+	public synchronized void writeBatch(List<T> values) throws StreamCorruptedException {
+		int written = 0;
+		for (T value : values) {
+			if (isFull()) {
+				m_Metrics.written(written, m_Buf.size());
+				m_Metrics.waitedFull();
+				written = 0;
+			}
+			while(isFull() && !m_Broken){
+				notifyAll();	// let the reader drain what has been written so far
+				try{
+					wait();
+				} catch (InterruptedException e){}
+			}
+			if (m_Broken)
+				throw new StreamCorruptedException("pipe is broken");
+			m_Buf.addLast(value);
+			written++;
+		}
+		m_Metrics.written(written, m_Buf.size());
 		notifyAll();	// waiting in read
 	}
+
+	/**
+	 * breaks the pipe: every blocked and every further write fails with a StreamCorruptedException,
+	 * reads fail as soon as the remaining buffer is drained
+	 */
+	public synchronized void breakPipe(){
+		m_Broken = true;
+		notifyAll();
+	}
+
+	public synchronized boolean isBroken(){
+		return m_Broken;
+	}
 }
@@ -0,0 +1,105 @@
+package pmp.pipes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.InvalidParameterException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * compresses the frames of another codec with Deflate. A frame is the length of the uncompressed frame (int)
+ * followed by the compressed bytes.
+ *
+ * the default level BEST_SPEED mostly pays off for images with large uniform areas (e.g. after thresholding);
+ * not thread safe, every pipe end needs its own instance.
+ */
+public class DeflateCodec<T> implements FrameCodec<T> {
+
+    private final FrameCodec<T> m_Codec;
+    private final Deflater m_Deflater;
+    private final Inflater m_Inflater = new Inflater();
+    private ByteBuffer m_Raw = ByteBuffer.allocate(1 << 16);
+
+    public DeflateCodec(FrameCodec<T> codec, int level) throws InvalidParameterException {
+        if (codec == null) {
+            throw new InvalidParameterException("codec can't be null!");
+        }
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new InvalidParameterException("invalid compression level " + level + "!");
+        }
+        m_Codec = codec;
+        m_Deflater = new Deflater(level);
+    }
+
+    public DeflateCodec(FrameCodec<T> codec) throws InvalidParameterException {
+        this(codec, Deflater.BEST_SPEED);
+    }
+
+    @Override
+    public ByteBuffer encode(T value, ByteBuffer out) throws IOException {
+        m_Raw.clear();
+        m_Raw = m_Codec.encode(value, m_Raw);
+        int length = m_Raw.position();
+
+        out = FrameCodec.ensureRemaining(out, 4 + length / 2);
+        out.putInt(length);
+
+        m_Deflater.reset();
+        m_Deflater.setInput(m_Raw.array(), m_Raw.arrayOffset(), length);
+        m_Deflater.finish();
+        while (!m_Deflater.finished()) {
+            if (!out.hasRemaining() || !out.hasArray()) {
+                out = FrameCodec.ensureRemaining(out, Math.max(out.capacity() / 2, 1 << 12));
+            }
+            if (out.hasArray()) {
+                int n = m_Deflater.deflate(out.array(), out.arrayOffset() + out.position(), out.remaining());
+                out.position(out.position() + n);
+            } else {
+                byte[] chunk = new byte[out.remaining()];
+                out.put(chunk, 0, m_Deflater.deflate(chunk));
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public T decode(ByteBuffer in) throws IOException {
+        int length = in.getInt(in.position());
+        if (length < 0) {
+            throw new IOException("invalid length " + length + " of compressed frame");
+        }
+        int offset = in.position() + 4;
+        byte[] compressed;
+        if (in.hasArray()) {
+            compressed = in.array();
+            offset += in.arrayOffset();
+        } else {
+            compressed = new byte[in.remaining() - 4];
+            ByteBuffer source = in.duplicate();
+            source.position(offset);
+            source.get(compressed);
+            offset = 0;
+        }
+
+        if (m_Raw.capacity() < length) {
+            m_Raw = ByteBuffer.allocate(length);
+        }
+        m_Inflater.reset();
+        m_Inflater.setInput(compressed, offset, in.remaining() - 4);
+        try {
+            int n = 0;
+            while (n < length && !m_Inflater.finished()) {
+                int inflated = m_Inflater.inflate(m_Raw.array(), n, length - n);
+                if (inflated == 0 && (m_Inflater.needsInput() || m_Inflater.needsDictionary())) {
+                    throw new IOException("compressed frame is truncated");
+                }
+                n += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("invalid compressed frame: " + e.getMessage(), e);
+        }
+        m_Raw.clear().limit(length);
+        return m_Codec.decode(m_Raw);
+    }
+}
@@ -0,0 +1,38 @@
+package pmp.pipes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * turns the entities of a remote pipe into the bytes of a frame and back.
+ *
+ * both ends of a pipe have to use the same codec. The pipes use SerializingCodec if no codec is given.
+ */
+public interface FrameCodec<T> {
+
+    /**
+     * puts the bytes of the value (not null) at the position of out
+     * @return out, or a larger buffer with the contents of out if out had not enough room (see ensureRemaining)
+     */
+    ByteBuffer encode(T value, ByteBuffer out) throws IOException;
+
+    /**
+     * the value of the frame from the position to the limit of in. The buffer is reused after decode returns,
+     * so the value must not refer to it.
+     */
+    T decode(ByteBuffer in) throws IOException;
+
+    /**
+     * out, or a copy of out with room for at least n more bytes (same position and byte order)
+     */
+    static ByteBuffer ensureRemaining(ByteBuffer out, int n) {
+        if (out.remaining() >= n) return out;
+
+        int capacity = Math.max(out.capacity() * 2, out.position() + n);
+        ByteBuffer larger = out.isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        larger.order(out.order());
+        out.flip();
+        larger.put(out);
+        return larger;
+    }
+}
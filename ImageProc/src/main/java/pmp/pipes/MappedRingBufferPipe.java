@@ -0,0 +1,284 @@
+package pmp.pipes;
+
+import pmp.interfaces.IOable;
+import sun.misc.Unsafe;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * a pipe between two processes on the same host through a memory mapped file: one process writes, the other
+ * reads, both map the same file. No sockets and no system calls are involved in a handoff.
+ *
+ * the file holds a header with the producer and consumer cursors (bytes written and read so far, on separate cache
+ * lines) and a ring buffer of capacity bytes (a power of two). Every entity is a record: its length (int) and its
+ * bytes as encoded by the FrameCodec, padded to 4 bytes; a record never wraps around the end of the buffer, the
+ * rest of the buffer is skipped instead. A record can't be larger than the buffer.
+ *
+ * the cursors (and the magic number) are written with release stores and read with acquire loads through Unsafe on
+ * the mapped address, so the records before a cursor are visible once the cursor is; the cursors are in native byte
+ * order, both ends run on the same host. A blocked reader or writer spins first and parks afterwards. If the other process dies, the pipe waits forever.
+ *
+ * one end calls create() (which resets the file), the other one open().
+ *
+ * contract: a null entity signals end of stream
+ */
+public class MappedRingBufferPipe<T> implements IOable<T, T>, AutoCloseable {
+
+    private static final int MAGIC = 0x706D7052;    // "pmpR"
+    private static final int CAPACITY = 8;
+    private static final int HEAD = 64;             // next byte to read
+    private static final int TAIL = 128;            // next byte to write
+    private static final int DATA = 192;
+
+    private static final int END_OF_STREAM = -1;
+    private static final int SKIP = -2;             // rest of the buffer unused, record starts at offset 0
+
+    private static final Unsafe UNSAFE;
+    private static final long ADDRESS;              // of the Buffer.address field
+
+    static {
+        try {
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            UNSAFE = (Unsafe) field.get(null);
+            ADDRESS = UNSAFE.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final FileChannel m_Channel;
+    private final MappedByteBuffer m_Map;
+    private final long m_Address;                   // of the mapping, m_Map keeps it alive
+    private final ByteBuffer m_Data;
+    private final int m_Capacity;
+    private final int m_Mask;
+    private final FrameCodec<T> m_Codec;
+
+    // writing end
+    private ByteBuffer m_Frame = ByteBuffer.allocate(1 << 16);
+    private long m_Tail;
+    private long m_CachedHead;
+
+    // reading end
+    private long m_Head;
+    private long m_CachedTail;
+    private boolean m_EndRead = false;
+
+    private MappedRingBufferPipe(Path file, int capacity, FrameCodec<T> codec, boolean create) throws IOException {
+        if (codec == null) {
+            throw new InvalidParameterException("codec can't be null!");
+        }
+        m_Codec = codec;
+
+        if (create) {
+            m_Channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            m_Capacity = RingBufferSupport.capacityFor(capacity);
+            m_Map = m_Channel.map(FileChannel.MapMode.READ_WRITE, 0, DATA + m_Capacity);
+            m_Address = addressOf(m_Map);
+            m_Map.putInt(CAPACITY, m_Capacity);
+            UNSAFE.putLong(m_Address + HEAD, 0);
+            UNSAFE.putLong(m_Address + TAIL, 0);
+            UNSAFE.putOrderedInt(null, m_Address, MAGIC);    // last: open() checks it
+        } else {
+            m_Channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ByteBuffer header = m_Channel.map(FileChannel.MapMode.READ_ONLY, 0, DATA);
+            if (UNSAFE.getIntVolatile(null, addressOf(header)) != MAGIC) {
+                m_Channel.close();
+                throw new IOException(file + " is not a ring buffer pipe (yet)");
+            }
+            m_Capacity = header.getInt(CAPACITY);
+            m_Map = m_Channel.map(FileChannel.MapMode.READ_WRITE, 0, DATA + m_Capacity);
+            m_Address = addressOf(m_Map);
+        }
+        m_Mask = m_Capacity - 1;
+        m_Map.position(DATA);
+        m_Data = m_Map.slice();
+
+        m_Tail = m_CachedTail = readCursor(TAIL);
+        m_Head = m_CachedHead = readCursor(HEAD);
+    }
+
+    private static long addressOf(ByteBuffer mapped) {
+        return UNSAFE.getLong(mapped, ADDRESS);
+    }
+
+    /**
+     * creates (or resets) the file with an empty ring buffer of at least capacity bytes
+     */
+    public static <T> MappedRingBufferPipe<T> create(Path file, int capacity, FrameCodec<T> codec) throws IOException {
+        return new MappedRingBufferPipe<T>(file, capacity, codec, true);
+    }
+
+    /**
+     * maps the ring buffer of a file made by create()
+     */
+    public static <T> MappedRingBufferPipe<T> open(Path file, FrameCodec<T> codec) throws IOException {
+        return new MappedRingBufferPipe<T>(file, 0, codec, false);
+    }
+
+    public int capacity() {
+        return m_Capacity;
+    }
+
+    public synchronized void write(T value) throws StreamCorruptedException {
+        writeBatch(Collections.singletonList(value));
+    }
+
+    /**
+     * writes all records and publishes them together
+     */
+    public synchronized void writeBatch(List<T> values) throws StreamCorruptedException {
+        for (T value : values) {
+            int length;
+            if (value == null) {
+                length = 0;
+            } else {
+                try {
+                    m_Frame.clear();
+                    m_Frame = m_Codec.encode(value, m_Frame);
+                } catch (IOException e) {
+                    StreamCorruptedException sce = new StreamCorruptedException("can't encode " + value + ": " + e);
+                    sce.initCause(e);
+                    throw sce;
+                }
+                m_Frame.flip();
+                length = m_Frame.remaining();
+            }
+
+            int record = 4 + ((length + 3) & ~3);
+            if (record > m_Capacity) {
+                throw new StreamCorruptedException("a record of " + record + " bytes does not fit into the ring buffer of " + m_Capacity + " bytes");
+            }
+            int offset = (int) m_Tail & m_Mask;
+            if (offset + record > m_Capacity) {
+                // skip and record together may be larger than the buffer, so the skip is written on its own
+                awaitSpace(m_Capacity - offset);
+                m_Data.putInt(offset, SKIP);
+                m_Tail += m_Capacity - offset;
+                offset = 0;
+            }
+            awaitSpace(record);
+            if (value == null) {
+                m_Data.putInt(offset, END_OF_STREAM);
+            } else {
+                m_Data.putInt(offset, length);
+                ByteBuffer target = m_Data.duplicate();
+                target.position(offset + 4);
+                target.put(m_Frame);
+            }
+            m_Tail += record;
+        }
+        publishTail();
+    }
+
+    private void awaitSpace(int bytes) throws StreamCorruptedException {
+        if (m_Tail + bytes - m_CachedHead <= m_Capacity) return;
+
+        publishTail();      // the reader may be waiting for the records written so far
+        int round = 0;
+        while (m_Tail + bytes - (m_CachedHead = readCursor(HEAD)) > m_Capacity) {
+            RingBufferSupport.idle(round++);
+        }
+    }
+
+    private void publishTail() {
+        UNSAFE.putOrderedLong(null, m_Address + TAIL, m_Tail);     // after the records before the cursor
+    }
+
+    public synchronized T read() throws StreamCorruptedException {
+        if (m_EndRead) return null;
+
+        T value = readRecord();
+        publishHead();
+        return value;
+    }
+
+    /**
+     * reads one record, waiting if needed, and then all records already published (at most max)
+     */
+    public synchronized List<T> readBatch(int max) throws StreamCorruptedException {
+        List<T> batch = new ArrayList<T>();
+        if (m_EndRead) {
+            batch.add(null);
+            return batch;
+        }
+
+        T value = readRecord();
+        batch.add(value);
+        while (value != null && batch.size() < max && m_Head < m_CachedTail) {
+            value = readRecord();
+            batch.add(value);
+        }
+        publishHead();
+        return batch;
+    }
+
+    private void publishHead() {
+        UNSAFE.putOrderedLong(null, m_Address + HEAD, m_Head);     // after the records before the cursor have been read
+    }
+
+    private T readRecord() throws StreamCorruptedException {
+        while (true) {
+            if (m_Head >= m_CachedTail) {
+                publishHead();      // the writer may be waiting for a skipped rest of the buffer
+                int round = 0;
+                while (m_Head >= (m_CachedTail = readCursor(TAIL))) {
+                    RingBufferSupport.idle(round++);
+                }
+            }
+
+            int offset = (int) m_Head & m_Mask;
+            int length = m_Data.getInt(offset);
+            if (length == SKIP) {
+                m_Head += m_Capacity - offset;      // published with the record after it, or before waiting for it
+                continue;
+            }
+            if (length == END_OF_STREAM) {
+                m_Head += 4;
+                m_EndRead = true;
+                return null;
+            }
+            if (length < 0 || 4 + length > m_Capacity - offset) {
+                throw new StreamCorruptedException("invalid record length " + length + " at " + m_Head);
+            }
+
+            ByteBuffer frame = m_Data.duplicate();
+            frame.limit(offset + 4 + length).position(offset + 4);
+            T value;
+            try {
+                value = m_Codec.decode(frame.slice());
+            } catch (IOException e) {
+                StreamCorruptedException sce = new StreamCorruptedException("can't decode the record at " + m_Head + ": " + e);
+                sce.initCause(e);
+                throw sce;
+            }
+            m_Head += 4 + ((length + 3) & ~3);
+            return value;
+        }
+    }
+
+    private long readCursor(int cursor) {
+        return UNSAFE.getLongVolatile(null, m_Address + cursor);     // before the records up to the cursor
+    }
+
+    /**
+     * closes the file; the mapping stays valid until it is garbage collected
+     */
+    @Override
+    public void close() throws IOException {
+        m_Channel.close();
+    }
+}
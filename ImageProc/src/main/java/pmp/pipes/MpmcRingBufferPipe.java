@@ -0,0 +1,126 @@
+package pmp.pipes;
+
+import java.io.StreamCorruptedException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * a bounded, lock-free pipe for any number of writing and reading threads, e.g. for fan-in of several filters
+ * into one downstream filter. Every slot of the preallocated power-of-two array carries its own sequence number,
+ * which tells writers and readers whether the slot is free or filled (D. Vyukov's bounded MPMC queue).
+ * A blocked reader or writer spins first and parks afterwards.
+ *
+ * contract: a null entity signals end of stream (and is transported like any other entity). With fan-in the
+ *           writers have to agree on a single ending signal, otherwise the reader sees one per writer.
+ */
+public class MpmcRingBufferPipe<T> implements BoundedPipe<T> {
+
+    private final Object[] m_Buf;
+    private final AtomicLongArray m_Sequences;
+    private final int m_Mask;
+
+    private final RingBufferSupport.PaddedAtomicLong m_Head = new RingBufferSupport.PaddedAtomicLong(0);   // next sequence to read
+    private final RingBufferSupport.PaddedAtomicLong m_Tail = new RingBufferSupport.PaddedAtomicLong(0);   // next sequence to write
+
+    private final AtomicLong m_FullWaits = new AtomicLong();     // only counted while waiting
+    private final AtomicLong m_EmptyWaits = new AtomicLong();
+    private volatile boolean m_Broken = false;
+
+    public MpmcRingBufferPipe(int capacity) {
+        int size = RingBufferSupport.capacityFor(capacity);
+        m_Buf = new Object[size];
+        m_Sequences = new AtomicLongArray(size);
+        m_Mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            m_Sequences.set(i, i);
+        }
+    }
+
+    public T read() throws StreamCorruptedException {
+        int round = 0;
+        while (true) {
+            long head = m_Head.get();
+            int index = (int) head & m_Mask;
+            long diff = m_Sequences.get(index) - (head + 1);
+
+            if (diff == 0) {
+                if (m_Head.compareAndSet(head, head + 1)) {
+                    Object slot = m_Buf[index];
+                    m_Buf[index] = null;
+                    m_Sequences.lazySet(index, head + m_Buf.length);
+                    return RingBufferSupport.decode(slot);
+                }
+            } else if (diff < 0) {      // empty
+                if (m_Broken)
+                    throw new StreamCorruptedException("pipe is broken");
+                if (round == 0)
+                    m_EmptyWaits.incrementAndGet();
+                RingBufferSupport.idle(round++);
+            }
+            // diff > 0: another reader took the slot, retry with the new head
+        }
+    }
+
+    public void write(T value) throws StreamCorruptedException {
+        Object item = RingBufferSupport.encode(value);
+        int round = 0;
+        while (true) {
+            if (m_Broken)
+                throw new StreamCorruptedException("pipe is broken");
+
+            long tail = m_Tail.get();
+            int index = (int) tail & m_Mask;
+            long diff = m_Sequences.get(index) - tail;
+
+            if (diff == 0) {
+                if (m_Tail.compareAndSet(tail, tail + 1)) {
+                    m_Buf[index] = item;
+                    m_Sequences.lazySet(index, tail + 1);
+                    return;
+                }
+            } else if (diff < 0) {      // full
+                if (round == 0)
+                    m_FullWaits.incrementAndGet();
+                RingBufferSupport.idle(round++);
+            }
+            // diff > 0: another writer took the slot, retry with the new tail
+        }
+    }
+
+    public int capacity() {
+        return m_Buf.length;
+    }
+
+    public int size() {
+        long head = m_Head.get();
+        return (int) Math.max(0, Math.min(m_Tail.get() - head, m_Buf.length));
+    }
+
+    public long fullWaits() {
+        return m_FullWaits.get();
+    }
+
+    public long emptyWaits() {
+        return m_EmptyWaits.get();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean isFull() {
+        return size() >= m_Buf.length;
+    }
+
+    /**
+     * breaks the pipe: every blocked and every further write fails with a StreamCorruptedException,
+     * reads fail as soon as the remaining buffer is drained
+     */
+    public void breakPipe() {
+        m_Broken = true;
+    }
+
+    public boolean isBroken() {
+        return m_Broken;
+    }
+}
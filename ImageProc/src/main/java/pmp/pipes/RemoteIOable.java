@@ -2,8 +2,11 @@ package pmp.pipes;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.List;
 
 public interface RemoteIOable<T> extends Remote {
     public T read() throws RemoteException;
     public void write(T value) throws RemoteException;
+    public List<T> readBatch(int max) throws RemoteException;
+    public void writeBatch(List<T> values) throws RemoteException;
 }
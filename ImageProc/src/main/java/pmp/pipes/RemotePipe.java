@@ -3,6 +3,8 @@ package pmp.pipes;
 import java.io.StreamCorruptedException;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
 
 public class RemotePipe<T> extends UnicastRemoteObject implements RemoteIOable<T> {
 
@@ -29,4 +31,20 @@ public class RemotePipe<T> extends UnicastRemoteObject implements RemoteIOable<T
             throw new RemoteException("Error on writing from remote-Pipe", e);
         }
     }
+
+    public List<T> readBatch(int max) throws RemoteException {
+        try {
+            return new ArrayList<T>(m_pipe.readBatch(max));
+        } catch (StreamCorruptedException e) {
+            throw new RemoteException("Error on reading from remote-pipe", e);
+        }
+    }
+
+    public void writeBatch(List<T> values) throws RemoteException {
+        try {
+            m_pipe.writeBatch(values);
+        } catch (StreamCorruptedException e) {
+            throw new RemoteException("Error on writing from remote-Pipe", e);
+        }
+    }
 }
@@ -2,13 +2,25 @@ package pmp.pipes;
 
 import pmp.interfaces.IOable;
 
+import java.io.IOException;
 import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
 import java.rmi.Naming;
 import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
 
+/*
+ * with a FrameCodec the entities are encoded by the proxies and the RemotePipe only buffers the byte[] frames, so
+ * the proxies of both ends need the same codec
+ */
 public class RemotePipeProxy<T> implements IOable<T, T>{
 
     RemoteIOable<T> m_RemotePipe = null;
+    private RemoteIOable<byte[]> m_RemoteFrames = null;
+    private FrameCodec<T> m_Codec = null;
+    private ByteBuffer m_Frame = null;
+
     public RemotePipeProxy(String remoteAdr, String remotePipeName) throws StreamCorruptedException {
         if (!remoteAdr.endsWith("/")) remoteAdr += "/";
         try {
@@ -18,9 +30,20 @@ public class RemotePipeProxy<T> implements IOable<T, T>{
             e.printStackTrace();           
         }
     }
+
+    @SuppressWarnings("unchecked")
+    public RemotePipeProxy(String remoteAdr, String remotePipeName, FrameCodec<T> codec) throws StreamCorruptedException {
+        this(remoteAdr, remotePipeName);
+        if (codec != null) {
+            m_RemoteFrames = (RemoteIOable<byte[]>) (RemoteIOable<?>) m_RemotePipe;
+            m_Codec = codec;
+            m_Frame = ByteBuffer.allocate(1 << 16);
+        }
+    }
     
     public T read() throws StreamCorruptedException {
         try {
+            if (m_Codec != null) return decode(m_RemoteFrames.read());
             return m_RemotePipe.read();
         } catch (RemoteException e) {
             throw new StreamCorruptedException(e.getMessage());
@@ -29,11 +52,70 @@ public class RemotePipeProxy<T> implements IOable<T, T>{
 
     public void write(T value) throws StreamCorruptedException {
         try {
-            m_RemotePipe.write(value);
+            if (m_Codec != null) m_RemoteFrames.write(encode(value));
+            else m_RemotePipe.write(value);
         } catch (RemoteException e) {
             throw new StreamCorruptedException(e.getMessage());
         }
     }
-    
+
+    public List<T> readBatch(int max) throws StreamCorruptedException {
+        try {
+            if (m_Codec != null) {
+                List<byte[]> frames = m_RemoteFrames.readBatch(max);
+                List<T> values = new ArrayList<T>(frames.size());
+                for (byte[] frame : frames) {
+                    values.add(decode(frame));
+                }
+                return values;
+            }
+            return m_RemotePipe.readBatch(max);
+        } catch (RemoteException e) {
+            throw new StreamCorruptedException(e.getMessage());
+        }
+    }
+
+    public void writeBatch(List<T> values) throws StreamCorruptedException {
+        try {
+            if (m_Codec != null) {
+                ArrayList<byte[]> frames = new ArrayList<byte[]>(values.size());
+                for (T value : values) {
+                    frames.add(encode(value));
+                }
+                m_RemoteFrames.writeBatch(frames);
+            } else {
+                m_RemotePipe.writeBatch(new ArrayList<T>(values));   // the list has to be serializable
+            }
+        } catch (RemoteException e) {
+            throw new StreamCorruptedException(e.getMessage());
+        }
+    }
+
+    private synchronized byte[] encode(T value) throws StreamCorruptedException {
+        if (value == null) return null;
+        try {
+            m_Frame.clear();
+            m_Frame = m_Codec.encode(value, m_Frame);
+            byte[] frame = new byte[m_Frame.position()];
+            m_Frame.flip();
+            m_Frame.get(frame);
+            return frame;
+        } catch (IOException e) {
+            StreamCorruptedException sce = new StreamCorruptedException("can't encode " + value + ": " + e);
+            sce.initCause(e);
+            throw sce;
+        }
+    }
+
+    private synchronized T decode(byte[] frame) throws StreamCorruptedException {
+        if (frame == null) return null;
+        try {
+            return m_Codec.decode(ByteBuffer.wrap(frame));
+        } catch (IOException e) {
+            StreamCorruptedException sce = new StreamCorruptedException("can't decode a frame: " + e);
+            sce.initCause(e);
+            throw sce;
+        }
+    }
 
 }
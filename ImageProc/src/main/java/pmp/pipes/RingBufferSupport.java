@@ -0,0 +1,78 @@
+package pmp.pipes;
+
+import java.io.StreamCorruptedException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * shared helpers of the lock-free ring buffer pipes:
+ * - encoding of the ending signal (null) into a slot value
+ * - spin-then-park waiting strategy
+ * - a sequence counter padded against false sharing
+ */
+final class RingBufferSupport {
+
+    static final Object NULL_ITEM = new Object();
+
+    private static final int SPIN_ROUNDS = 100;
+    private static final int YIELD_ROUNDS = 10;
+    private static final long MIN_PARK_NANOS = 1000L;
+    private static final long MAX_PARK_NANOS = 500000L;
+
+    private RingBufferSupport() {}
+
+    static int capacityFor(int requested) {
+        int capacity = 2;
+        while (capacity < requested) {
+            if (capacity >= (1 << 30)) {
+                throw new IllegalArgumentException("capacity too large: " + requested);
+            }
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    static Object encode(Object value) {
+        return value == null ? NULL_ITEM : value;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T decode(Object slot) {
+        return slot == NULL_ITEM ? null : (T) slot;
+    }
+
+    /**
+     * waits a little before the caller retries: busy spinning first, then yielding, then parking
+     * with an exponentially growing (but capped) timeout
+     *
+     * @param round number of unsuccessful attempts so far
+     * @throws StreamCorruptedException if the waiting thread got interrupted (the interrupt flag is kept)
+     */
+    static void idle(int round) throws StreamCorruptedException {
+        if (round < SPIN_ROUNDS) {
+            return;
+        } else if (round < SPIN_ROUNDS + YIELD_ROUNDS) {
+            Thread.yield();
+        } else {
+            int shift = Math.min(round - SPIN_ROUNDS - YIELD_ROUNDS, 20);
+            LockSupport.parkNanos(Math.min(MIN_PARK_NANOS << shift, MAX_PARK_NANOS));
+            if (Thread.currentThread().isInterrupted()) {
+                throw new StreamCorruptedException("interrupted while waiting on pipe");
+            }
+        }
+    }
+
+    /*
+     * keeps the producer and consumer counters on different cache lines
+     */
+    @SuppressWarnings("unused")
+    static final class PaddedAtomicLong extends AtomicLong {
+        private static final long serialVersionUID = 1L;
+
+        private long p1, p2, p3, p4, p5, p6, p7;
+
+        PaddedAtomicLong(long initialValue) {
+            super(initialValue);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package pmp.pipes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * frames with the Java serialization of the entity; works for every Serializable entity, but slowly and with a
+ * large overhead for arrays and images
+ */
+public class SerializingCodec<T> implements FrameCodec<T> {
+
+    private final Bytes m_Bytes = new Bytes();
+
+    @Override
+    public ByteBuffer encode(T value, ByteBuffer out) throws IOException {
+        m_Bytes.reset();
+        try (ObjectOutputStream oos = new ObjectOutputStream(m_Bytes)) {
+            oos.writeObject(value);
+        }
+        out = FrameCodec.ensureRemaining(out, m_Bytes.size());
+        out.put(m_Bytes.buffer(), 0, m_Bytes.size());
+        return out;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T decode(ByteBuffer in) throws IOException {
+        byte[] bytes;
+        int offset;
+        if (in.hasArray()) {
+            bytes = in.array();
+            offset = in.arrayOffset() + in.position();
+        } else {
+            bytes = new byte[in.remaining()];
+            in.duplicate().get(bytes);
+            offset = 0;
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes, offset, in.remaining()))) {
+            return (T) ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("unknown class in frame: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * the serialized entity, without copying it out of the stream
+     */
+    private static class Bytes extends ByteArrayOutputStream {
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import pmp.interfaces.Writeable;
 
 import java.io.StreamCorruptedException;
 import java.security.InvalidParameterException;
+import java.util.List;
 
 public class SimplePipe<T> implements IOable<T, T> {
 	
@@ -51,4 +52,18 @@ public class SimplePipe<T> implements IOable<T, T> {
 		
 		m_Output.write(input);
 	}
+
+	public List<T> readBatch(int max) throws StreamCorruptedException {
+		if ( m_Input == null )
+            throw new InvalidParameterException("input filter can't be null!");
+
+		return m_Input.readBatch(max);
+	}
+
+	public void writeBatch(List<T> values) throws StreamCorruptedException {
+		if ( m_Output == null )
+            throw new InvalidParameterException("output filter can't be null!");
+
+		m_Output.writeBatch(values);
+	}
 }
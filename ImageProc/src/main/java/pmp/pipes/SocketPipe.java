@@ -0,0 +1,328 @@
+package pmp.pipes;
+
+import pmp.interfaces.IOable;
+import pmp.metrics.PipeMetrics;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * one end of a pipe between two processes over a TCP connection, an alternative to RemotePipe without a remote
+ * call per entity. One end only writes, the other end only reads.
+ *
+ * every entity is sent as a frame: its length (int) and its bytes as encoded by the FrameCodec (Java serialization
+ * if none is given); the ending signal is the length -1.
+ * The writer does not wait for the reader: the frames of a write or writeBatch are sent together, and up to window
+ * frames may be on their way or not read yet. The reader acknowledges the frames it has read (an int with their
+ * number) before it waits for more and at least every ACK_INTERVAL frames.
+ *
+ * writing the ending signal waits until the reader has read it, then both ends close the connection.
+ *
+ * metrics: at the writing end the depth is the number of frames not acknowledged yet (at most window), a full wait
+ * is a wait for an acknowledgement; at the reading end an empty wait is a read which found no complete frame.
+ *
+ * contract: a null entity signals end of stream
+ */
+public class SocketPipe<T> implements IOable<T, T>, AutoCloseable {
+
+    public static final int DEFAULT_WINDOW = 64;
+    public static final int ACK_INTERVAL = 16;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int END_OF_STREAM = -1;
+
+    private final SocketChannel m_Channel;
+    private final int m_Window;
+    private final FrameCodec<T> m_Codec;
+    private final PipeMetrics m_Metrics;
+
+    // writing end
+    private final ByteBuffer m_Out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer m_Acks = ByteBuffer.allocate(256);
+    private ByteBuffer m_Frame = ByteBuffer.allocate(BUFFER_SIZE);
+    private int m_InFlight = 0;
+    private boolean m_EndWritten = false;
+
+    // reading end
+    private final ByteBuffer m_In = ByteBuffer.allocate(BUFFER_SIZE);
+    private final ByteBuffer m_Ack = ByteBuffer.allocate(4);
+    private int m_Unacknowledged = 0;
+    private boolean m_EndRead = false;
+
+    /**
+     * @param window the most frames the writer sends before it waits for an acknowledgement
+     */
+    public SocketPipe(SocketChannel channel, int window, FrameCodec<T> codec) throws IOException {
+        if (channel == null || !channel.isConnected()) {
+            throw new InvalidParameterException("channel must be connected!");
+        }
+        if (codec == null) {
+            throw new InvalidParameterException("codec can't be null!");
+        }
+        m_Codec = codec;
+        m_Channel = channel;
+        m_Channel.configureBlocking(true);
+        m_Channel.setOption(StandardSocketOptions.TCP_NODELAY, true);   // the frames are batched here
+        m_Window = Math.max(window, 1);
+        m_Metrics = new PipeMetrics(m_Window);
+        m_In.flip();
+    }
+
+    public PipeMetrics getMetrics() {
+        return m_Metrics;
+    }
+
+    public SocketPipe(SocketChannel channel, int window) throws IOException {
+        this(channel, window, new SerializingCodec<T>());
+    }
+
+    public static <T> SocketPipe<T> connect(InetSocketAddress address, int window) throws IOException {
+        return connect(address, window, new SerializingCodec<T>());
+    }
+
+    public static <T> SocketPipe<T> connect(InetSocketAddress address, int window, FrameCodec<T> codec) throws IOException {
+        return new SocketPipe<T>(SocketChannel.open(address), window, codec);
+    }
+
+    /**
+     * waits for the next connection to the server
+     */
+    public static <T> SocketPipe<T> accept(ServerSocketChannel server, int window) throws IOException {
+        return accept(server, window, new SerializingCodec<T>());
+    }
+
+    public static <T> SocketPipe<T> accept(ServerSocketChannel server, int window, FrameCodec<T> codec) throws IOException {
+        return new SocketPipe<T>(server.accept(), window, codec);
+    }
+
+    public synchronized void write(T value) throws StreamCorruptedException {
+        writeBatch(Collections.singletonList(value));
+    }
+
+    public synchronized void writeBatch(List<T> values) throws StreamCorruptedException {
+        if (m_EndWritten) {
+            throw new StreamCorruptedException("end of stream was already written");
+        }
+        int written = 0;
+        try {
+            for (T value : values) {
+                if (m_InFlight >= m_Window) {
+                    m_Metrics.written(written, m_InFlight);
+                    m_Metrics.waitedFull();
+                    written = 0;
+                }
+                while (m_InFlight >= m_Window) {
+                    send(null);
+                    receiveAcks();
+                }
+                if (value == null) {
+                    putInt(END_OF_STREAM);
+                    send(null);
+                    m_EndWritten = true;
+                    awaitClose();
+                    return;
+                }
+
+                m_Frame.clear();
+                m_Frame = m_Codec.encode(value, m_Frame);
+                m_Frame.flip();
+
+                putInt(m_Frame.remaining());
+                if (m_Frame.remaining() <= m_Out.remaining()) {
+                    m_Out.put(m_Frame);
+                } else {
+                    send(m_Frame);
+                }
+                m_InFlight++;
+                written++;
+            }
+            send(null);
+            m_Metrics.written(written, m_InFlight);
+        } catch (IOException e) {
+            throw broken("writing to", e);
+        }
+    }
+
+    private void putInt(int value) throws IOException {
+        if (m_Out.remaining() < 4) {
+            send(null);
+        }
+        m_Out.putInt(value);
+    }
+
+    /**
+     * sends the buffered frames followed by payload (may be null) with one gathering write
+     */
+    private void send(ByteBuffer payload) throws IOException {
+        m_Out.flip();
+        if (payload == null) {
+            while (m_Out.hasRemaining()) {
+                m_Channel.write(m_Out);
+            }
+        } else {
+            ByteBuffer[] buffers = {m_Out, payload};
+            while (payload.hasRemaining()) {
+                m_Channel.write(buffers);
+            }
+        }
+        m_Out.clear();
+    }
+
+    /**
+     * waits for at least one acknowledgement
+     */
+    private void receiveAcks() throws IOException {
+        do {
+            if (m_Channel.read(m_Acks) < 0) {
+                throw new IOException("connection closed by the reader");
+            }
+        } while (m_Acks.position() < 4);
+
+        m_Acks.flip();
+        int acknowledged = 0;
+        while (m_Acks.remaining() >= 4) {
+            acknowledged += m_Acks.getInt();
+        }
+        m_Acks.compact();
+        m_InFlight -= acknowledged;
+        m_Metrics.read(acknowledged, m_InFlight);
+    }
+
+    /**
+     * the reader closes the connection after the ending signal; acknowledgements still arriving are discarded
+     */
+    private void awaitClose() throws IOException {
+        m_Channel.shutdownOutput();
+        m_Acks.clear();
+        while (m_Channel.read(m_Acks) >= 0) {
+            m_Acks.clear();
+        }
+        m_Channel.close();
+    }
+
+    public synchronized T read() throws StreamCorruptedException {
+        if (m_EndRead) {
+            return null;
+        }
+        try {
+            return readFrame();
+        } catch (IOException e) {
+            throw broken("reading from", e);
+        }
+    }
+
+    /**
+     * reads one frame, waiting if needed, and then all frames which have arrived completely (at most max)
+     */
+    public synchronized List<T> readBatch(int max) throws StreamCorruptedException {
+        List<T> batch = new ArrayList<T>();
+        if (m_EndRead) {
+            batch.add(null);
+            return batch;
+        }
+        try {
+            T value = readFrame();
+            batch.add(value);
+            while (value != null && batch.size() < max && hasFrame()) {
+                value = readFrame();
+                batch.add(value);
+            }
+        } catch (IOException e) {
+            throw broken("reading from", e);
+        }
+        return batch;
+    }
+
+    private boolean hasFrame() {
+        if (m_In.remaining() < 4) return false;
+        int length = m_In.getInt(m_In.position());
+        return length < 0 || length <= m_In.remaining() - 4;
+    }
+
+    private T readFrame() throws IOException {
+        fill(4);
+        int length = m_In.getInt();
+        if (length == END_OF_STREAM) {
+            m_EndRead = true;
+            m_Channel.close();
+            return null;
+        }
+        if (length < 0) {
+            throw new IOException("invalid frame length " + length);
+        }
+
+        T value;
+        if (length <= m_In.capacity()) {
+            fill(length);
+            ByteBuffer frame = m_In.duplicate();
+            frame.limit(frame.position() + length);
+            value = m_Codec.decode(frame.slice());
+            m_In.position(m_In.position() + length);
+        } else {
+            // larger than the buffer: what is buffered, the rest directly from the channel
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            payload.put(m_In);
+            while (payload.hasRemaining()) {
+                acknowledge();
+                if (m_Channel.read(payload) < 0) {
+                    throw new IOException("connection closed within a frame");
+                }
+            }
+            payload.flip();
+            value = m_Codec.decode(payload);
+        }
+
+        m_Metrics.read(1, 0);
+        if (++m_Unacknowledged >= ACK_INTERVAL) {
+            acknowledge();
+        }
+        return value;
+    }
+
+    /**
+     * makes sure that at least n bytes are buffered
+     */
+    private void fill(int n) throws IOException {
+        if (m_In.remaining() >= n) return;
+
+        acknowledge();      // the writer may be waiting for it
+        m_Metrics.waitedEmpty();
+        m_In.compact();
+        while (m_In.position() < n) {
+            if (m_Channel.read(m_In) < 0) {
+                throw new IOException("connection closed before the end of stream");
+            }
+        }
+        m_In.flip();
+    }
+
+    private void acknowledge() throws IOException {
+        if (m_Unacknowledged == 0) return;
+
+        m_Ack.clear();
+        m_Ack.putInt(m_Unacknowledged).flip();
+        while (m_Ack.hasRemaining()) {
+            m_Channel.write(m_Ack);
+        }
+        m_Unacknowledged = 0;
+    }
+
+    private StreamCorruptedException broken(String action, IOException e) {
+        StreamCorruptedException sce = new StreamCorruptedException("error on " + action + " socket pipe: " + e);
+        sce.initCause(e);
+        return sce;
+    }
+
+    @Override
+    public void close() throws IOException {
+        m_Channel.close();
+    }
+}
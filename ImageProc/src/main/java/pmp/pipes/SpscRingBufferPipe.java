@@ -0,0 +1,111 @@
+package pmp.pipes;
+
+import java.io.StreamCorruptedException;
+
+/*
+ * a bounded, lock-free pipe for exactly one writing and one reading thread.
+ * The buffer is a preallocated power-of-two array indexed by two sequence counters, so a handoff neither
+ * allocates nor takes a lock. A blocked reader or writer spins first and parks afterwards.
+ *
+ * use MpmcRingBufferPipe if several threads write (fan-in) or read concurrently.
+ *
+ * contract: a null entity signals end of stream (and is transported like any other entity)
+ */
+public class SpscRingBufferPipe<T> implements BoundedPipe<T> {
+
+    private final Object[] m_Buf;
+    private final int m_Mask;
+
+    private final RingBufferSupport.PaddedAtomicLong m_Head = new RingBufferSupport.PaddedAtomicLong(0);   // next sequence to read
+    private final RingBufferSupport.PaddedAtomicLong m_Tail = new RingBufferSupport.PaddedAtomicLong(0);   // next sequence to write
+
+    private long m_CachedHead = 0;    // only touched by the writer
+    private long m_CachedTail = 0;    // only touched by the reader
+    private volatile long m_FullWaits = 0;     // only written by the writer, while it waits
+    private volatile long m_EmptyWaits = 0;    // only written by the reader, while it waits
+
+    private volatile boolean m_Broken = false;
+
+    public SpscRingBufferPipe(int capacity) {
+        m_Buf = new Object[RingBufferSupport.capacityFor(capacity)];
+        m_Mask = m_Buf.length - 1;
+    }
+
+    public T read() throws StreamCorruptedException {
+        long head = m_Head.get();
+        if (head >= m_CachedTail) {
+            int round = 0;
+            while (head >= (m_CachedTail = m_Tail.get())) {
+                if (m_Broken)
+                    throw new StreamCorruptedException("pipe is broken");
+                if (round == 0)
+                    m_EmptyWaits++;
+                RingBufferSupport.idle(round++);
+            }
+        }
+
+        int index = (int) head & m_Mask;
+        Object slot = m_Buf[index];
+        m_Buf[index] = null;
+        m_Head.lazySet(head + 1);
+        return RingBufferSupport.decode(slot);
+    }
+
+    public void write(T value) throws StreamCorruptedException {
+        if (m_Broken)
+            throw new StreamCorruptedException("pipe is broken");
+
+        long tail = m_Tail.get();
+        long wrapPoint = tail - m_Buf.length;
+        if (m_CachedHead <= wrapPoint) {
+            int round = 0;
+            while ((m_CachedHead = m_Head.get()) <= wrapPoint) {
+                if (m_Broken)
+                    throw new StreamCorruptedException("pipe is broken");
+                if (round == 0)
+                    m_FullWaits++;
+                RingBufferSupport.idle(round++);
+            }
+        }
+
+        m_Buf[(int) tail & m_Mask] = RingBufferSupport.encode(value);
+        m_Tail.lazySet(tail + 1);
+    }
+
+    public int capacity() {
+        return m_Buf.length;
+    }
+
+    public int size() {
+        long head = m_Head.get();
+        return (int) (m_Tail.get() - head);
+    }
+
+    public long fullWaits() {
+        return m_FullWaits;
+    }
+
+    public long emptyWaits() {
+        return m_EmptyWaits;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean isFull() {
+        return size() >= m_Buf.length;
+    }
+
+    /**
+     * breaks the pipe: every blocked and every further write fails with a StreamCorruptedException,
+     * reads fail as soon as the remaining buffer is drained
+     */
+    public void breakPipe() {
+        m_Broken = true;
+    }
+
+    public boolean isBroken() {
+        return m_Broken;
+    }
+}
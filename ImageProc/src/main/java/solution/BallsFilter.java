@@ -1,6 +1,10 @@
 package solution;
 
 import calcCentroidsFilter.CalcCentroidsFilter;
+import dataContainers.ImageFrame;
+import imageOps.DeferredOps;
+import imageOps.MorphologyEngine;
+import imageOps.TileExecutor;
 import org.jaitools.media.jai.kernel.KernelFactory;
 import pmp.filter.DataTransformationFilter2;
 import pmp.interfaces.Readable;
@@ -28,31 +32,62 @@ public class BallsFilter extends DataTransformationFilter2<PlanarImage, PlanarIm
 
     private int radius = 5;
     private KernelJAI kernel = KernelFactory.createCircle(radius);
+    private boolean nativeMorphology = true;
+    private TileExecutor tileExecutor = TileExecutor.getDefault();
+    private boolean deferred = false;
+
+    /**
+     * true: opening on the MorphologyEngine, which takes the same time for any radius but uses an octagon instead of
+     * the exact disc; false: JAI erode/dilate with the exact circle kernel
+     */
+    public void setNativeMorphology(boolean nativeMorphology) {
+        this.nativeMorphology = nativeMorphology;
+    }
+
+    public void setTileExecutor(TileExecutor tileExecutor) {
+        this.tileExecutor = tileExecutor;
+    }
+
+    /**
+     * true: JAI erode and dilate with the exact circle kernel are appended to the incoming image and passed on
+     * without rendering them, the pixels are computed when a later stage needs them (see DeferredOps)
+     */
+    public void setDeferred(boolean deferred) {
+        this.deferred = deferred;
+    }
 
     @Override
     protected PlanarImage process(PlanarImage image) {
-        Window.show(image);
-        BufferedImage src = image.getAsBufferedImage();
-
-        PlanarImage ballsImage = PlanarImage.wrapRenderedImage(dilate(erode(src)));
-        Window.show(ballsImage);
+        PreviewService.getInstance().publish("BallsFilter", image);
+
+        PlanarImage ballsImage;
+        if (deferred) {
+            ballsImage = DeferredOps.create("dilate", parameters(DeferredOps.create("erode", parameters(image))));
+        } else {
+            BufferedImage src = ImageFrame.of(image).getImage();
+            if (nativeMorphology && MorphologyEngine.supports(src)) {
+                ballsImage = new ImageFrame(MorphologyEngine.open(src, radius, tileExecutor)).toPlanarImage();
+            } else {
+                ballsImage = PlanarImage.wrapRenderedImage(dilate(erode(image)));
+            }
+        }
+        PreviewService.getInstance().publish("BallsFilter result", ballsImage);
         return ballsImage;
     }
 
     private RenderedOp erode(Object src) {
-        ParameterBlock pb = new ParameterBlock();
-        pb.addSource(src);
-        pb.add(kernel);
-
-        return JAI.create("erode", pb);
+        return JAI.create("erode", parameters(src));
     }
 
     private RenderedOp dilate(Object src) {
+        return JAI.create("dilate", parameters(src));
+    }
+
+    private ParameterBlock parameters(Object src) {
         ParameterBlock pb = new ParameterBlock();
         pb.addSource(src);
         pb.add(kernel);
-
-        return JAI.create("dilate", pb);
+        return pb;
     }
 
     /*UE3 Beans Area*/
@@ -67,6 +102,7 @@ public class BallsFilter extends DataTransformationFilter2<PlanarImage, PlanarIm
     public void setRadius(int radius) {
         int tempradius = this.radius;
         this.radius = radius;
+        this.kernel = KernelFactory.createCircle(radius);
         listeners.firePropertyChange("radius", tempradius, radius);
     }
 
@@ -0,0 +1,37 @@
+package solution;
+
+import dataContainers.Coordinate;
+import pmp.pipes.FrameCodec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * frames of coordinate lists: the number of coordinates followed by x, y and diameter (ints) of each of them
+ */
+public class CoordinatesCodec implements FrameCodec<ArrayList<Coordinate>> {
+
+    @Override
+    public ByteBuffer encode(ArrayList<Coordinate> value, ByteBuffer out) throws IOException {
+        out = FrameCodec.ensureRemaining(out, 4 + 12 * value.size());
+        out.putInt(value.size());
+        for (Coordinate coordinate : value) {
+            out.putInt(coordinate._x).putInt(coordinate._y).putInt(coordinate._diameter);
+        }
+        return out;
+    }
+
+    @Override
+    public ArrayList<Coordinate> decode(ByteBuffer in) throws IOException {
+        int size = in.getInt();
+        if (size < 0 || 12L * size != in.remaining()) {
+            throw new IOException("invalid frame of " + size + " coordinates with " + in.remaining() + " bytes");
+        }
+        ArrayList<Coordinate> coordinates = new ArrayList<Coordinate>(size);
+        for (int i = 0; i < size; i++) {
+            coordinates.add(new Coordinate(in.getInt(), in.getInt(), in.getInt()));
+        }
+        return coordinates;
+    }
+}
@@ -7,15 +7,27 @@ import pmp.interfaces.Readable;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
-import java.io.*;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.file.Paths;
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
 
+/**
+ * writes the measured coordinates of every image of the stream to the file resultPath, in the chosen encoding.
+ *
+ * the file is opened with the first image and kept open until the end of stream (or until the sink fails). It is
+ * truncated when it is opened, like before; with append set the records are added to those of earlier runs.
+ */
 public class DataSink extends Sink<ArrayList<Coordinate>> implements PropertyChangeListener {
 
     private String resultPath = "";
     private int begin;
     private int end;
+    private ResultWriter.Encoding encoding = ResultWriter.Encoding.TEXT;
+    private boolean append = false;
+
+    private ResultWriter results = null;
 
     DataSink(Readable<ArrayList<Coordinate>> input, int begin, int end) throws InvalidParameterException {
         if (input == null) {
@@ -31,38 +43,61 @@ public class DataSink extends Sink<ArrayList<Coordinate>> implements PropertyCha
         this.end = end;
     }
 
-    public void write(ArrayList<Coordinate> data) {
+    public void write(ArrayList<Coordinate> data) throws StreamCorruptedException {
+        if (data == null) {
+            closeResults();     // end of stream of a passive sink
+            return;
+        }
         if(!resultPath.isEmpty()) {
-            if (data != null) {
-                try {
-                    BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(resultPath)));
-                    for (Coordinate coordinate : data) {
-                        writer.append("Coordinates: ");
-                        writer.append("X: ");
-                        writer.append(String.valueOf(coordinate._x));
-                        writer.append(" Y: ");
-                        writer.append(String.valueOf(coordinate._y));
-                        writer.append(" Diameter: ");
-                        writer.append(String.valueOf(coordinate._diameter));
-                        writer.append(" Result: ");
-                        if (coordinate._diameter < begin)
-                            writer.append("Failed; The diameter is too small.");
-                        else if (coordinate._diameter > end)
-                            writer.append("Failed; The diameter is too large.");
-                        else
-                            writer.append("Success");
-                        writer.append("\n");
-                    }
-                    writer.close();
-                } catch (Exception e) {
-                    e.printStackTrace();
+            try {
+                if (results == null) {
+                    results = new ResultWriter(Paths.get(resultPath), encoding, append, begin, end);
                 }
+                results.write(data);
+            } catch (IOException e) {
+                StreamCorruptedException sce = new StreamCorruptedException("can't write the results to " + resultPath + ": " + e);
+                sce.initCause(e);
+                throw sce;
             }
         } else {
             System.out.println("Path for the result is invalid");
         }
     }
 
+    /**
+     * end of stream of an active sink: the results are complete only once the file is closed
+     */
+    @Override
+    protected void afterEndingSignal() throws StreamCorruptedException {
+        closeResults();
+    }
+
+    /**
+     * closes the file after a failure, or when a setting changes
+     */
+    @Override
+    public void epilogue() {
+        try {
+            closeResults();
+        } catch (StreamCorruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void closeResults() throws StreamCorruptedException {
+        if (results != null) {
+            try {
+                results.close();
+            } catch (IOException e) {
+                StreamCorruptedException sce = new StreamCorruptedException("can't write the results to " + resultPath + ": " + e);
+                sce.initCause(e);
+                throw sce;
+            } finally {
+                results = null;
+            }
+        }
+    }
+
     /*UE3 Beans Area*/
 
     public DataSink(){}
@@ -72,10 +107,35 @@ public class DataSink extends Sink<ArrayList<Coordinate>> implements PropertyCha
     }
 
     public void setResultPath(String resultPath) {
+        epilogue();
         this.resultPath = resultPath;
         ImageSourceSingleton.getInstance().run();
     }
 
+    public ResultWriter.Encoding getEncoding() {
+        return encoding;
+    }
+
+    public void setEncoding(ResultWriter.Encoding encoding) {
+        if (encoding == null) {
+            throw new InvalidParameterException("encoding can't be null!");
+        }
+        epilogue();
+        ResultWriter.Encoding tempEncoding = this.encoding;
+        this.encoding = encoding;
+        listeners.firePropertyChange("encoding", tempEncoding, encoding);
+    }
+
+    public boolean isAppend() {
+        return append;
+    }
+
+    public void setAppend(boolean append) {
+        boolean tempAppend = this.append;
+        this.append = append;
+        listeners.firePropertyChange("append", tempAppend, append);
+    }
+
     public void doProcess(){}
 
     protected PropertyChangeSupport listeners = new PropertyChangeSupport(this);
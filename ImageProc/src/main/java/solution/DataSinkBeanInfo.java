@@ -13,10 +13,14 @@ public class DataSinkBeanInfo extends SimpleBeanInfo {
     public PropertyDescriptor[] getPropertyDescriptors() {
         try {
             PropertyDescriptor prop1 = new PropertyDescriptor("resultPath", beanClass);
+            PropertyDescriptor prop2 = new PropertyDescriptor("encoding", beanClass);
+            PropertyDescriptor prop3 = new PropertyDescriptor("append", beanClass);
 
             prop1.setBound(true);
+            prop2.setBound(true);
+            prop3.setBound(true);
 
-            return new PropertyDescriptor[]{prop1};
+            return new PropertyDescriptor[]{prop1, prop2, prop3};
         } catch (IntrospectionException ex) {
             throw new Error(ex.toString());
         }
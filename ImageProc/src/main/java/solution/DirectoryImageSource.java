@@ -0,0 +1,143 @@
+package solution;
+
+import dataContainers.ImageFrame;
+import pmp.filter.Source;
+import pmp.interfaces.Writeable;
+
+import javax.media.jai.JAI;
+import javax.media.jai.PlanarImage;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.InvalidParameterException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * source for all images of a directory whose names match a glob pattern (e.g. "*.jpg"), in the order of their names.
+ *
+ * the images are decoded on a pool of decode threads ahead of demand: up to prefetch images are decoded or waiting
+ * to be read, so reading and decoding the next images overlaps with the work of the downstream filters. The images
+ * are passed on in order, as ImageFrames that are decoded completely.
+ *
+ * contract: a null entity signals end of stream
+ */
+public class DirectoryImageSource extends Source<PlanarImage> {
+
+    public static final int DEFAULT_PREFETCH = 4;
+
+    private final Path m_Directory;
+    private final String m_Glob;
+    private final int m_DecodeThreads;
+    private final int m_Prefetch;
+    private final ArrayDeque<Future<PlanarImage>> m_Pending = new ArrayDeque<Future<PlanarImage>>();
+
+    private Iterator<Path> m_Files = null;
+    private ExecutorService m_Decoders = null;
+
+    public DirectoryImageSource(Path directory, String glob, int decodeThreads, int prefetch) throws InvalidParameterException {
+        if (directory == null || !Files.isDirectory(directory)) {
+            throw new InvalidParameterException("directory " + directory + " does not exist!");
+        }
+        m_Directory = directory;
+        m_Glob = (glob == null || glob.isEmpty()) ? "*" : glob;
+        m_DecodeThreads = Math.max(decodeThreads, 1);
+        m_Prefetch = Math.max(prefetch, 1);
+    }
+
+    public DirectoryImageSource(Path directory, String glob) throws InvalidParameterException {
+        this(directory, glob, Math.max(Runtime.getRuntime().availableProcessors() / 2, 1), DEFAULT_PREFETCH);
+    }
+
+    public DirectoryImageSource(Writeable<PlanarImage> output, Path directory, String glob, int decodeThreads, int prefetch) throws InvalidParameterException {
+        this(directory, glob, decodeThreads, prefetch);
+        setOutput(output);
+    }
+
+    @Override
+    public synchronized PlanarImage read() throws StreamCorruptedException {
+        if (m_Files == null) {
+            m_Files = listFiles().iterator();
+            m_Decoders = Executors.newFixedThreadPool(m_DecodeThreads, r -> {
+                Thread thread = new Thread(r, "pmp-decode-" + m_Directory.getFileName());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        while (m_Pending.size() < m_Prefetch && m_Files.hasNext()) {
+            final Path file = m_Files.next();
+            m_Pending.addLast(m_Decoders.submit(() -> decode(file)));
+        }
+
+        if (m_Pending.isEmpty()) {
+            m_Decoders.shutdown();
+            return null;
+        }
+        return await(m_Pending.removeFirst());
+    }
+
+    /**
+     * the matching files, sorted by name
+     */
+    private List<Path> listFiles() throws StreamCorruptedException {
+        List<Path> files = new ArrayList<Path>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(m_Directory, m_Glob)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        } catch (IOException e) {
+            StreamCorruptedException sce = new StreamCorruptedException("can't list " + m_Directory + ": " + e);
+            sce.initCause(e);
+            throw sce;
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * decodes one file completely, called on a decode thread
+     */
+    protected PlanarImage decode(Path file) {
+        return ImageFrame.of(JAI.create("fileload", file.toString())).toPlanarImage();
+    }
+
+    private PlanarImage await(Future<PlanarImage> future) throws StreamCorruptedException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StreamCorruptedException("interrupted while waiting for a decoder");
+        } catch (ExecutionException e) {
+            epilogue();
+            StreamCorruptedException sce = new StreamCorruptedException("decoding failed: " + e.getCause());
+            sce.initCause(e.getCause());
+            throw sce;
+        }
+    }
+
+    /**
+     * stops decoding; images not read yet are discarded
+     */
+    @Override
+    public synchronized void epilogue() {
+        for (Future<PlanarImage> future : m_Pending) {
+            future.cancel(true);
+        }
+        m_Pending.clear();
+        if (m_Decoders != null) {
+            m_Decoders.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package solution;
+
+import dataContainers.ImageFrame;
+import pmp.pipes.FrameCodec;
+
+import javax.media.jai.PlanarImage;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.InvalidParameterException;
+
+/**
+ * frames of images with 8 bit samples: a header (width, height, number of bands, the offset of every band within
+ * a pixel) followed by the samples, pixel interleaved, row after row.
+ *
+ * frames in the BYTE_INTERLEAVED format (e.g. gray, RGB, BGR) are sent with their own band order, so encoding and
+ * decoding copy whole rows; other images are converted sample by sample. Decoded images are ImageFrames with a
+ * gray or RGB(A) color model.
+ */
+public class ImageCodec implements FrameCodec<PlanarImage> {
+
+    @Override
+    public ByteBuffer encode(PlanarImage value, ByteBuffer out) throws IOException {
+        ImageFrame frame = ImageFrame.of(value);
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        int bands = frame.getNumBands();
+        for (int size : value.getSampleModel().getSampleSize()) {
+            if (size != 8) {
+                throw new InvalidParameterException("only images with 8 bit samples can be encoded, not " + size);
+            }
+        }
+
+        boolean interleaved = frame.getFormat() == ImageFrame.Format.BYTE_INTERLEAVED;
+        int[] bandOffsets = interleaved ? frame.getBandOffsets() : null;
+        int row = width * bands;
+        out = FrameCodec.ensureRemaining(out, 12 + 4 * bands + row * height);
+
+        out.putInt(width).putInt(height).putInt(bands);
+        for (int b = 0; b < bands; b++) {
+            out.putInt(interleaved ? bandOffsets[b] : b);
+        }
+
+        if (interleaved) {
+            Object data = frame.getData();
+            int offset = frame.getOffset();
+            int stride = frame.getScanlineStride();
+            if (data instanceof ByteBuffer) {
+                ByteBuffer samples = ((ByteBuffer) data).duplicate();
+                for (int y = 0; y < height; y++) {
+                    samples.limit(offset + y * stride + row).position(offset + y * stride);
+                    out.put(samples);
+                }
+            } else {
+                for (int y = 0; y < height; y++) {
+                    out.put((byte[]) data, offset + y * stride, row);
+                }
+            }
+        } else {
+            Raster raster = frame.getImage().getRaster();
+            int[] samples = new int[row];
+            for (int y = 0; y < height; y++) {
+                raster.getPixels(0, y, width, 1, samples);
+                for (int sample : samples) {
+                    out.put((byte) sample);
+                }
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public PlanarImage decode(ByteBuffer in) throws IOException {
+        int width = in.getInt();
+        int height = in.getInt();
+        int bands = in.getInt();
+        if (width <= 0 || height <= 0 || bands <= 0 || bands > 4) {
+            throw new IOException("invalid image header " + width + "x" + height + "x" + bands);
+        }
+        int[] bandOffsets = new int[bands];
+        for (int b = 0; b < bands; b++) {
+            bandOffsets[b] = in.getInt();
+        }
+        if ((long) width * height * bands != in.remaining()) {
+            throw new IOException("image frame has " + in.remaining() + " samples instead of " + (long) width * height * bands);
+        }
+
+        byte[] samples = new byte[in.remaining()];
+        in.get(samples);
+
+        PixelInterleavedSampleModel sm = new PixelInterleavedSampleModel(DataBuffer.TYPE_BYTE, width, height, bands, width * bands, bandOffsets);
+        ColorModel cm = PlanarImage.createColorModel(sm);
+        if (cm == null) {
+            throw new IOException("no color model for " + bands + " bands");
+        }
+        WritableRaster raster = Raster.createWritableRaster(sm, new DataBufferByte(samples, samples.length), null);
+        return new ImageFrame(new BufferedImage(cm, raster, false, null)).toPlanarImage();
+    }
+}
@@ -0,0 +1,31 @@
+package solution;
+
+import dataContainers.ImageFrame;
+import pmp.filter.DataTransformationFilter2;
+import pmp.interfaces.Readable;
+import pmp.interfaces.Writeable;
+
+import javax.media.jai.PlanarImage;
+import java.security.InvalidParameterException;
+
+/**
+ * connects a source of ImageFrames (e.g. MappedImageSource) to the image filters, which pass PlanarImages.
+ * The frames are wrapped, not copied.
+ */
+public class ImageFrameFilter extends DataTransformationFilter2<ImageFrame, PlanarImage> {
+
+    public ImageFrameFilter() {}
+
+    public ImageFrameFilter(Readable<ImageFrame> input) throws InvalidParameterException {
+        super(input);
+    }
+
+    public ImageFrameFilter(Writeable<PlanarImage> output) throws InvalidParameterException {
+        super(output);
+    }
+
+    @Override
+    protected PlanarImage process(ImageFrame frame) {
+        return frame.toPlanarImage();
+    }
+}
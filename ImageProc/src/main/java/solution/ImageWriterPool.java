@@ -0,0 +1,267 @@
+package solution;
+
+import javax.media.jai.JAI;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.InvalidParameterException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * writes images to files on a pool of background writer threads, so encoding and disk writes are not on the
+ * critical path of the pipeline.
+ *
+ * every writer thread has a bounded queue of images to write. All images for the same file go to the same writer,
+ * so they are written in the order they were submitted and the last one wins. When the queue of a writer is full,
+ * the backpressure policy decides:
+ * BLOCK waits until there is room, DROP discards the image, SPILL writes it at once (on the calling thread) as raw
+ * samples to the file name with ".raw" appended, which avoids encoding but not the disk write.
+ *
+ * the images must not be changed after they were submitted. flush() waits until all submitted images are written,
+ * close() in addition stops the writer threads.
+ */
+public class ImageWriterPool {
+
+    public enum Format {
+        JPEG, PNG,
+        /** 8 bit samples, pixel interleaved, row after row, no header */
+        RAW
+    }
+
+    public enum Backpressure {BLOCK, DROP, SPILL}
+
+    private final Format m_Format;
+    private final Backpressure m_Backpressure;
+    private final Lane[] m_Lanes;
+    private final AtomicLong m_Dropped = new AtomicLong();
+    private final AtomicLong m_Spilled = new AtomicLong();
+
+    private int m_Pending = 0;              // guarded by this
+    private Exception m_Failure = null;     // guarded by this
+    private volatile boolean m_Closed = false;
+
+    public ImageWriterPool(Format format, Backpressure backpressure, int writers, int queueCapacity) throws InvalidParameterException {
+        if (format == null || backpressure == null) {
+            throw new InvalidParameterException("format and backpressure can't be null!");
+        }
+        m_Format = format;
+        m_Backpressure = backpressure;
+        m_Lanes = new Lane[Math.max(writers, 1)];
+        for (int i = 0; i < m_Lanes.length; i++) {
+            m_Lanes[i] = new Lane(Math.max(queueCapacity, 1), "pmp-writer-" + i);
+        }
+    }
+
+    public Format getFormat() {
+        return m_Format;
+    }
+
+    public Backpressure getBackpressure() {
+        return m_Backpressure;
+    }
+
+    /**
+     * number of images discarded by the DROP policy
+     */
+    public long getDroppedImages() {
+        return m_Dropped.get();
+    }
+
+    /**
+     * number of images written as raw samples by the SPILL policy
+     */
+    public long getSpilledImages() {
+        return m_Spilled.get();
+    }
+
+    /**
+     * queues the image to be written to the file
+     * @return false if the image was dropped
+     */
+    public boolean submit(RenderedImage image, String path) throws StreamCorruptedException {
+        if (m_Closed) {
+            throw new StreamCorruptedException("the writers have been closed");
+        }
+        Lane lane = m_Lanes[(path.hashCode() & Integer.MAX_VALUE) % m_Lanes.length];
+        Task task = new Task(image, path);
+
+        synchronized (this) {
+            m_Pending++;
+        }
+        if (lane.queue.offer(task)) {
+            lane.start();
+            return true;
+        }
+
+        switch (m_Backpressure) {
+            case BLOCK:
+                try {
+                    lane.start();
+                    lane.queue.put(task);
+                    return true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    done(null);
+                    throw new StreamCorruptedException("interrupted while waiting for the writer of " + path);
+                }
+            case DROP:
+                m_Dropped.incrementAndGet();
+                done(null);
+                return false;
+            default:
+                m_Spilled.incrementAndGet();
+                try {
+                    writeRaw(image, path + ".raw");
+                    done(null);
+                } catch (IOException | RuntimeException e) {
+                    done(e);
+                }
+                return true;
+        }
+    }
+
+    /**
+     * waits until all submitted images are written
+     * @throws StreamCorruptedException if an image could not be written since the last flush
+     */
+    public synchronized void flush() throws StreamCorruptedException {
+        try {
+            while (m_Pending > 0) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StreamCorruptedException("interrupted while waiting for the writers");
+        }
+
+        if (m_Failure != null) {
+            StreamCorruptedException sce = new StreamCorruptedException("writing an image failed: " + m_Failure);
+            sce.initCause(m_Failure);
+            m_Failure = null;
+            throw sce;
+        }
+    }
+
+    /**
+     * writes all submitted images and stops the writer threads; further images are rejected
+     * @throws StreamCorruptedException if an image could not be written since the last flush
+     */
+    public void close() throws StreamCorruptedException {
+        try {
+            flush();
+        } finally {
+            m_Closed = true;
+            for (Lane lane : m_Lanes) {
+                lane.stop();
+            }
+        }
+    }
+
+    public boolean isClosed() {
+        return m_Closed;
+    }
+
+    private synchronized void done(Exception failure) {
+        if (failure != null && m_Failure == null) {
+            m_Failure = failure;
+        }
+        if (--m_Pending == 0) {
+            notifyAll();
+        }
+    }
+
+    private void write(Task task) {
+        try {
+            if (m_Format == Format.RAW) {
+                writeRaw(task.image, task.path);
+            } else {
+                JAI.create("filestore", task.image, task.path, m_Format.name());
+            }
+            done(null);
+        } catch (IOException | RuntimeException e) {
+            done(e);
+        }
+    }
+
+    private static void writeRaw(RenderedImage image, String path) throws IOException {
+        for (int size : image.getSampleModel().getSampleSize()) {
+            if (size != 8) {
+                throw new InvalidParameterException("raw images need 8 bit samples, not " + size);
+            }
+        }
+        Raster raster = image instanceof BufferedImage ? ((BufferedImage) image).getRaster() : image.getData();
+        int width = raster.getWidth();
+        int bands = raster.getNumBands();
+        int[] samples = new int[width * bands];
+        byte[] row = new byte[samples.length];
+
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Paths.get(path)), 1 << 16)) {
+            for (int y = raster.getMinY(); y < raster.getMinY() + raster.getHeight(); y++) {
+                raster.getPixels(raster.getMinX(), y, width, 1, samples);
+                for (int i = 0; i < samples.length; i++) {
+                    row[i] = (byte) samples[i];
+                }
+                out.write(row);
+            }
+        }
+    }
+
+    private static class Task {
+        final RenderedImage image;
+        final String path;
+
+        Task(RenderedImage image, String path) {
+            this.image = image;
+            this.path = path;
+        }
+    }
+
+    /**
+     * one writer thread with its queue, started with the first image and stopped by close()
+     */
+    private class Lane {
+        final BlockingQueue<Task> queue;
+        private final String name;
+        private volatile Thread thread = null;
+
+        Lane(int capacity, String name) {
+            this.queue = new ArrayBlockingQueue<Task>(capacity);
+            this.name = name;
+        }
+
+        void start() {
+            if (thread != null) return;
+            synchronized (this) {
+                if (thread != null) return;
+                thread = new Thread(() -> {
+                    while (!m_Closed) {
+                        try {
+                            write(queue.take());
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                }, name);
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+
+        /**
+         * the thread stays set, so the lane is not started again
+         */
+        synchronized void stop() {
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+    }
+}
@@ -3,16 +3,20 @@ package solution;
 import calcCentroidsFilter.CalcCentroidsFilter;
 import dataContainers.Coordinate;
 import pmp.interfaces.Readable;
+import pmp.filter.AbstractFilter;
+import pmp.filter.ParallelTransformationFilter;
 import pmp.interfaces.Writeable;
+import pmp.pipeline.PipelineRunner;
 import pmp.pipes.SimplePipe;
 
 import javax.media.jai.PlanarImage;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Scanner;
 
 public class Main {
 
-    private static void pull(boolean showRect, int toleranceBegin, int toleranceEnd) {
+    private static void pull(boolean showRect, int toleranceBegin, int toleranceEnd, boolean deferred) {
         ImageSource source = new ImageSource();
         SimplePipe<PlanarImage> pipe1 = new SimplePipe<>(source);
 
@@ -23,9 +27,11 @@ public class Main {
         SimplePipe<PlanarImage> pipe3 = new SimplePipe<>((Readable<PlanarImage>) thresholdFilter);
 
         MedianFilter medianFilter = new MedianFilter((Readable<PlanarImage>) pipe3);
+        medianFilter.setDeferred(deferred);
         SimplePipe<PlanarImage> pipe4 = new SimplePipe<>((Readable<PlanarImage>) medianFilter);
 
         BallsFilter ballsFilter = new BallsFilter((Readable<PlanarImage>) pipe4);
+        ballsFilter.setDeferred(deferred);
         SimplePipe<PlanarImage> pipe5 = new SimplePipe<>((Readable<PlanarImage>) ballsFilter);
 
         SaveFilter saveFilter = new SaveFilter((Readable<PlanarImage>) pipe5);
@@ -64,6 +70,26 @@ public class Main {
         source.run();
     }
 
+    private static void threaded(boolean showRect, int toleranceBegin, int toleranceEnd) {
+        ImageSource source = new ImageSource();
+
+        RectangleFilter rectangleFilter = new RectangleFilter();
+        rectangleFilter.setShowRectangle(showRect);
+
+        List<AbstractFilter<PlanarImage, ?>> filters = new ArrayList<>();
+        filters.add(rectangleFilter);
+        filters.add(new ThresholdFilter());
+        int cores = Runtime.getRuntime().availableProcessors();
+        filters.add(new ParallelTransformationFilter<PlanarImage, PlanarImage>(MedianFilter::new, cores, 2 * cores));
+        filters.add(new ParallelTransformationFilter<PlanarImage, PlanarImage>(BallsFilter::new, cores, 2 * cores));
+        filters.add(new SaveFilter());
+        filters.add(new CalcCentroidsFilter());
+
+        DataSink sink = new DataSink(toleranceBegin, toleranceEnd);
+
+        new PipelineRunner(source, filters, sink).run();
+    }
+
     private static boolean showRect = false;
     private static int begin = 0;
     private static int end = 0;
@@ -103,17 +129,25 @@ public class Main {
 
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
-        System.out.println("Please enter either 'push' or 'pull' to choose a method.");
+        System.out.println("Please enter either 'push', 'pull', 'deferred' or 'threaded' to choose a method.");
         String input = scanner.nextLine();
         switch (input) {
             case "pull":
                 processInput(scanner);
-                pull(showRect, begin, end);
+                pull(showRect, begin, end, false);
+                break;
+            case "deferred":
+                processInput(scanner);
+                pull(showRect, begin, end, true);
                 break;
             case "push":
                processInput(scanner);
                push(showRect, begin, end);
                 break;
+            case "threaded":
+                processInput(scanner);
+                threaded(showRect, begin, end);
+                break;
             default:
                 System.out.println("Please enter either 'push', 'pull' or 'exit'.");
         }
@@ -0,0 +1,223 @@
+package solution;
+
+import dataContainers.ByteBufferDataBuffer;
+import dataContainers.ImageFrame;
+import pmp.filter.Source;
+import pmp.interfaces.Writeable;
+
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * source for the 8 bit gray frames of an uncompressed file: raw samples (frames of a given size back to back after
+ * an optional header) or binary PGM (P5, one or more images one after the other).
+ *
+ * every frame is a memory mapped region of the file which is used as the pixel buffer of the ImageFrame: the source
+ * itself decodes and copies nothing. The regions are mapped privately (copy on write), so filters may change the
+ * frames in place without changing the file; read-only files are mapped read-only and their frames must not be changed.
+ *
+ * this does not make frames larger than the heap usable: the filters downstream create their results on the heap
+ * (ThresholdFilter, MedianFilter, ...), and JAI operations get a heap copy of the frame (see ImageFrame). Only the
+ * decoding and the copy into a read buffer are saved; a pipeline still needs heap for the frames (or their cropped
+ * ROI) it processes.
+ *
+ * the frames are found by their offsets in the file when the source is created; getFrame(i) gives random access.
+ *
+ * contract: a null entity signals end of stream
+ */
+public class MappedImageSource extends Source<ImageFrame> {
+
+    private static final ColorModel GRAY = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_GRAY),
+            false, false, Transparency.OPAQUE, DataBuffer.TYPE_BYTE);
+
+    private final Path m_File;
+    private final FileChannel m_Channel;
+    private final FileChannel.MapMode m_Mode;
+    private final List<long[]> m_Frames = new ArrayList<long[]>();     // offset, width, height
+    private int m_Next = 0;
+
+    /**
+     * binary PGM file with one or more images
+     */
+    public MappedImageSource(Path file) throws IOException {
+        this(file, -1, -1, 0);
+    }
+
+    /**
+     * raw file: frames of width x height bytes, the first one after headerBytes
+     */
+    public MappedImageSource(Path file, int width, int height, long headerBytes) throws IOException {
+        m_File = file;
+        if (Files.isWritable(file)) {
+            m_Channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            m_Mode = FileChannel.MapMode.PRIVATE;
+        } else {
+            m_Channel = FileChannel.open(file, StandardOpenOption.READ);
+            m_Mode = FileChannel.MapMode.READ_ONLY;
+        }
+
+        try {
+            if (width < 0) {
+                indexPgm();
+            } else {
+                indexRaw(width, height, headerBytes);
+            }
+        } catch (IOException | RuntimeException e) {
+            m_Channel.close();
+            throw e;
+        }
+    }
+
+    public MappedImageSource(Writeable<ImageFrame> output, Path file) throws IOException {
+        this(file);
+        setOutput(output);
+    }
+
+    public MappedImageSource(Writeable<ImageFrame> output, Path file, int width, int height, long headerBytes) throws IOException {
+        this(file, width, height, headerBytes);
+        setOutput(output);
+    }
+
+    private void indexRaw(int width, int height, long headerBytes) throws IOException {
+        if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) {
+            throw new InvalidParameterException("invalid frame size " + width + "x" + height + "!");
+        }
+        long frameBytes = (long) width * height;
+        for (long offset = headerBytes; offset + frameBytes <= m_Channel.size(); offset += frameBytes) {
+            m_Frames.add(new long[]{offset, width, height});
+        }
+    }
+
+    private void indexPgm() throws IOException {
+        long offset = 0;
+        long size = m_Channel.size();
+        while (offset < size) {
+            ByteBuffer header = ByteBuffer.allocate((int) Math.min(1024, size - offset));
+            m_Channel.read(header, offset);
+            header.flip();
+
+            if (header.remaining() < 2 || header.get() != 'P' || header.get() != '5') {
+                if (m_Frames.isEmpty()) {
+                    throw new IOException(m_File + " is not a binary PGM file");
+                }
+                break;      // trailing bytes after the last image
+            }
+            int width, height, maxValue;
+            try {
+                width = nextNumber(header);
+                height = nextNumber(header);
+                maxValue = nextNumber(header);
+            } catch (BufferUnderflowException e) {
+                throw new IOException(m_File + ": PGM header of frame " + m_Frames.size() + " is incomplete");
+            }
+            if (maxValue <= 0 || maxValue > 255) {
+                throw new IOException(m_File + ": only 8 bit PGM is supported, maxval is " + maxValue);
+            }
+            if ((long) width * height > Integer.MAX_VALUE) {
+                throw new IOException(m_File + ": frame " + width + "x" + height + " is too large");
+            }
+            header.get();       // the single whitespace before the samples
+
+            long data = offset + header.position();
+            if (data + (long) width * height > size) {
+                throw new IOException(m_File + ": frame " + m_Frames.size() + " is truncated");
+            }
+            m_Frames.add(new long[]{data, width, height});
+            offset = data + (long) width * height;
+        }
+    }
+
+    /**
+     * next decimal number of a PGM header, skipping whitespace and comments
+     */
+    private int nextNumber(ByteBuffer header) throws IOException {
+        int c = header.get();
+        while (Character.isWhitespace(c) || c == '#') {
+            if (c == '#') {
+                while (c != '\n' && c != '\r') c = header.get();
+            }
+            c = header.get();
+        }
+        if (c < '0' || c > '9') {
+            throw new IOException(m_File + ": invalid PGM header");
+        }
+        int value = 0;
+        while (c >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            c = header.get();
+        }
+        header.position(header.position() - 1);
+        return value;
+    }
+
+    public int getFrameCount() {
+        return m_Frames.size();
+    }
+
+    /**
+     * offset of the first sample of the frame in the file
+     */
+    public long getFrameOffset(int index) {
+        return m_Frames.get(index)[0];
+    }
+
+    /**
+     * maps the frame with the given index
+     */
+    public ImageFrame getFrame(int index) throws IOException {
+        long[] frame = m_Frames.get(index);
+        int width = (int) frame[1];
+        int height = (int) frame[2];
+        int size = width * height;
+
+        MappedByteBuffer buffer = m_Channel.map(m_Mode, frame[0], size);
+        PixelInterleavedSampleModel sm = new PixelInterleavedSampleModel(DataBuffer.TYPE_BYTE, width, height, 1, width, new int[]{0});
+        WritableRaster raster = Raster.createWritableRaster(sm, new ByteBufferDataBuffer(buffer, size), null);
+        return new ImageFrame(new BufferedImage(GRAY, raster, false, null));
+    }
+
+    @Override
+    public synchronized ImageFrame read() throws StreamCorruptedException {
+        if (m_Next >= m_Frames.size()) {
+            return null;
+        }
+        try {
+            return getFrame(m_Next++);
+        } catch (IOException e) {
+            StreamCorruptedException sce = new StreamCorruptedException("can't map frame " + (m_Next - 1) + " of " + m_File + ": " + e);
+            sce.initCause(e);
+            throw sce;
+        }
+    }
+
+    /**
+     * closes the file; frames already mapped stay valid
+     */
+    @Override
+    public void epilogue() {
+        try {
+            m_Channel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
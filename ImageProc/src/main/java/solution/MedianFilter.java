@@ -1,6 +1,10 @@
 package solution;
 
 import calcCentroidsFilter.CalcCentroidsFilter;
+import dataContainers.ImageFrame;
+import imageOps.DeferredOps;
+import imageOps.MedianEngine;
+import imageOps.TileExecutor;
 import pmp.filter.DataTransformationFilter2;
 import pmp.interfaces.Readable;
 import pmp.interfaces.Writeable;
@@ -9,7 +13,11 @@ import javax.media.jai.JAI;
 import javax.media.jai.PlanarImage;
 import javax.media.jai.RenderedOp;
 import javax.media.jai.operator.MedianFilterDescriptor;
+import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
 import java.awt.image.renderable.ParameterBlock;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
@@ -36,19 +44,67 @@ public class MedianFilter extends DataTransformationFilter2<PlanarImage, PlanarI
     }
 
     private int maskSize = 5;
+    private TileExecutor tileExecutor = TileExecutor.getDefault();
+    private boolean deferred = false;
+
+    public void setTileExecutor(TileExecutor tileExecutor) {
+        this.tileExecutor = tileExecutor;
+    }
+
+    /**
+     * true: the JAI median operation is appended to the incoming image and passed on without rendering it, the
+     * pixels are computed when a later stage needs them (see DeferredOps)
+     */
+    public void setDeferred(boolean deferred) {
+        this.deferred = deferred;
+    }
 
     @Override
     protected PlanarImage process(PlanarImage image) {
-        Window.show(image);
-        BufferedImage src = image.getAsBufferedImage();
+        PreviewService.getInstance().publish("MedianFilter", image);
+        if (deferred) {
+            return DeferredOps.create("MedianFilter", parameters(image, maskSize));
+        }
+
+        BufferedImage src = ImageFrame.of(image).getImage();
+
+        if (MedianEngine.supports(src)) {
+            return new ImageFrame(MedianEngine.apply(src, maskSize, tileExecutor)).toPlanarImage();
+        }
+
+        if (!tileExecutor.isParallel()) {
+            return PlanarImage.wrapRenderedImage(median(src, maskSize));
+        }
+
+        // every band is filtered together with the maskSize / 2 rows above and below it,
+        // so the rows of the band itself get exactly the values of a filter run on the whole image
+        int maskSize = this.maskSize;
+        int margin = maskSize / 2;
+        int width = src.getWidth();
+        int height = src.getHeight();
+        WritableRaster dst = src.getRaster().createCompatibleWritableRaster();
+
+        tileExecutor.forEachBand(0, height, width, (y0, y1) -> {
+            int top = Math.max(0, y0 - margin);
+            int bottom = Math.min(height, y1 + margin);
+            RenderedOp band = median(src.getSubimage(0, top, width, bottom - top), maskSize);
+            Raster rows = band.getData(new Rectangle(0, y0 - top, width, y1 - y0));
+            dst.setRect(0, top, rows);
+        });
+
+        return new ImageFrame(new BufferedImage(src.getColorModel(), dst, src.isAlphaPremultiplied(), null)).toPlanarImage();
+    }
+
+    private static RenderedOp median(BufferedImage src, int maskSize) {
+        return JAI.create("MedianFilter", parameters(src, maskSize));
+    }
 
+    private static ParameterBlock parameters(RenderedImage src, int maskSize) {
         ParameterBlock pb = new ParameterBlock();
         pb.addSource(src);
         pb.add(MedianFilterDescriptor.MEDIAN_MASK_SQUARE);
         pb.add(maskSize);
-        RenderedOp result = JAI.create("MedianFilter", pb);
-
-        return PlanarImage.wrapRenderedImage(result);
+        return pb;
     }
 
     /*UE3 Beans Area*/
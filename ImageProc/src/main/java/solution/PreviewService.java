@@ -0,0 +1,165 @@
+package solution;
+
+import dataContainers.ImageFrame;
+import imageOps.DeferredOps;
+
+import javax.media.jai.PlanarImage;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * shows the images of the filters without slowing the filters down.
+ *
+ * publish() only puts the image into the slot of its stage, replacing (dropping) the image that was there and has
+ * not been shown yet; it never blocks and never copies. One display thread takes the latest image of every stage at
+ * most maxFramesPerSecond times per second, copies it and shows it in the window of the stage (one window per
+ * stage, reused for all images).
+ *
+ * the copy is taken on the display thread while the pipeline may already change the frame in place, so a preview
+ * can show a frame partly processed by the next stage.
+ *
+ * the service is disabled in a headless environment or with -Dimageproc.preview=off; publish() then returns at once.
+ */
+public class PreviewService {
+
+    private static final PreviewService INSTANCE = new PreviewService();
+
+    private final Map<String, AtomicReference<Preview>> m_Slots = new ConcurrentHashMap<>();
+    private final Map<String, Window> m_Windows = new ConcurrentHashMap<>();
+    private final AtomicLong m_Dropped = new AtomicLong();
+
+    private volatile boolean m_Enabled = !GraphicsEnvironment.isHeadless() && !"off".equals(System.getProperty("imageproc.preview"));
+    private volatile long m_IntervalNanos = TimeUnit.SECONDS.toNanos(1) / 10;
+    private volatile Thread m_DisplayThread = null;
+
+    private PreviewService() {}
+
+    public static PreviewService getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return m_Enabled;
+    }
+
+    /**
+     * false: nothing is shown and publish() returns at once (headless mode); images not shown yet are discarded
+     */
+    public void setEnabled(boolean enabled) {
+        if (enabled && GraphicsEnvironment.isHeadless()) {
+            throw new HeadlessException("no display for the preview");
+        }
+        m_Enabled = enabled;
+        if (!enabled) {
+            for (AtomicReference<Preview> slot : m_Slots.values()) {
+                slot.set(null);
+            }
+        }
+    }
+
+    public void setMaxFramesPerSecond(int framesPerSecond) {
+        m_IntervalNanos = TimeUnit.SECONDS.toNanos(1) / Math.max(framesPerSecond, 1);
+    }
+
+    /**
+     * number of images replaced in their slot before they were shown
+     */
+    public long getDroppedFrames() {
+        return m_Dropped.get();
+    }
+
+    public void publish(String stage, PlanarImage image) {
+        publish(stage, image, null);
+    }
+
+    /**
+     * @param overlay drawn over the copy of the image on the display thread, may be null
+     */
+    public void publish(String stage, PlanarImage image, Consumer<Graphics2D> overlay) {
+        if (!m_Enabled || image == null) return;
+
+        AtomicReference<Preview> slot = m_Slots.get(stage);
+        if (slot == null) {
+            slot = m_Slots.computeIfAbsent(stage, s -> new AtomicReference<>());
+        }
+        if (slot.getAndSet(new Preview(image, overlay)) != null) {
+            m_Dropped.incrementAndGet();
+        }
+        if (m_DisplayThread == null) {
+            startDisplayThread();
+        }
+    }
+
+    private synchronized void startDisplayThread() {
+        if (m_DisplayThread != null) return;
+
+        m_DisplayThread = new Thread(this::display, "preview");
+        m_DisplayThread.setDaemon(true);
+        m_DisplayThread.setPriority(Thread.MIN_PRIORITY);
+        m_DisplayThread.start();
+    }
+
+    private void display() {
+        while (true) {
+            long start = System.nanoTime();
+            if (m_Enabled) {
+                for (Map.Entry<String, AtomicReference<Preview>> slot : m_Slots.entrySet()) {
+                    Preview preview = slot.getValue().getAndSet(null);
+                    if (preview != null) {
+                        show(slot.getKey(), preview);
+                    }
+                }
+            }
+
+            long rest = m_IntervalNanos - (System.nanoTime() - start);
+            if (rest > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(rest);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void show(String stage, Preview preview) {
+        BufferedImage snapshot;
+        Window window;
+        try {
+            if (DeferredOps.isDeferred(preview.image)) {
+                snapshot = preview.image.getAsBufferedImage();
+            } else {
+                snapshot = ImageFrame.of(preview.image).copy().getImage();
+            }
+            if (preview.overlay != null) {
+                Graphics2D g2d = snapshot.createGraphics();
+                preview.overlay.accept(g2d);
+                g2d.dispose();
+            }
+            window = m_Windows.computeIfAbsent(stage, Window::new);
+        } catch (RuntimeException e) {
+            // a broken preview must not stop the previews of the other stages
+            e.printStackTrace();
+            return;
+        }
+
+        SwingUtilities.invokeLater(() -> window.display(snapshot));
+    }
+
+    private static class Preview {
+        final PlanarImage image;
+        final Consumer<Graphics2D> overlay;
+
+        Preview(PlanarImage image, Consumer<Graphics2D> overlay) {
+            this.image = image;
+            this.overlay = overlay;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package solution;
 
 import calcCentroidsFilter.CalcCentroidsFilter;
+import dataContainers.ImageFrame;
 import pmp.filter.AbstractFilter;
 import pmp.filter.DataTransformationFilter2;
 import pmp.interfaces.Readable;
@@ -8,7 +9,6 @@ import pmp.interfaces.Writeable;
 
 import javax.media.jai.PlanarImage;
 import java.awt.*;
-import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
@@ -77,7 +77,7 @@ public class RectangleFilter extends DataTransformationFilter2<PlanarImage, Plan
 
     @Override
     public PlanarImage process(PlanarImage image) {
-        Window.show(image);
+        PreviewService.getInstance().publish("RectangleFilter", image);
         x = Math.max(x, 0);
         y = Math.max(y, 0);
         if(width < 0)
@@ -87,17 +87,15 @@ public class RectangleFilter extends DataTransformationFilter2<PlanarImage, Plan
         Rectangle rectangle = new Rectangle(x, y, width, height);
 
         if(showRectangle) {
-            BufferedImage img = image.getAsBufferedImage();
-            Graphics2D g2d = img.createGraphics();
-            g2d.setColor(Color.WHITE);
-            g2d.setStroke(new BasicStroke(4));
-            g2d.drawRect(rectangle.x, rectangle.y, rectangle.width, rectangle.height);
-            g2d.dispose();
-            Window.show(PlanarImage.wrapRenderedImage(img));
+            // drawn on the copy taken by the preview, not on the image
+            PreviewService.getInstance().publish("RectangleFilter rectangle", image, g2d -> {
+                g2d.setColor(Color.WHITE);
+                g2d.setStroke(new BasicStroke(4));
+                g2d.drawRect(rectangle.x, rectangle.y, rectangle.width, rectangle.height);
+            });
         }
 
-        image = PlanarImage.wrapRenderedImage(image.getAsBufferedImage(rectangle, image.getColorModel()));
-        return image;
+        return ImageFrame.of(image).crop(rectangle).toPlanarImage();     // shares the pixels of the incoming image
     }
 
     /*UE3 Bean Area*/
@@ -0,0 +1,198 @@
+package solution;
+
+import dataContainers.Coordinate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidParameterException;
+import java.util.List;
+
+/**
+ * appends the measured coordinates of a stream of images to one file.
+ *
+ * the file stays open until close(); the records are encoded into a reusable buffer and written in chunks of the
+ * buffer size, so a stream of images costs a few large writes instead of opening the file for every image.
+ * Nothing is written to the file before the buffer is full, flush() or close() is called.
+ *
+ * every record carries the number of its image in the stream (starting at 0) and the result of the tolerance check.
+ */
+public class ResultWriter implements AutoCloseable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    /** the largest record of the text encodings, in bytes */
+    private static final int MAX_RECORD = 160;
+
+    public enum Encoding {
+        /** the human readable lines "Coordinates: X: .. Y: .. Diameter: .. Result: .." */
+        TEXT,
+        /** image,x,y,diameter,result with a header line at the beginning of the file */
+        CSV,
+        /** one JSON object per line */
+        JSON_LINES,
+        /**
+         * per image: int image number, int number of coordinates, then per coordinate int x, int y, int diameter
+         * and a byte with the ordinal of the Result; big endian, as read by DataInputStream
+         */
+        BINARY
+    }
+
+    public enum Result {SUCCESS, TOO_SMALL, TOO_LARGE}
+
+    private final FileChannel m_Channel;
+    private final Encoding m_Encoding;
+    private final ByteBuffer m_Buffer;
+    private final int m_Begin;
+    private final int m_End;
+    private int m_Image = 0;
+
+    /**
+     * @param append false truncates the file when it is opened, true keeps the records already in the file
+     * @param begin smallest diameter accepted
+     * @param end largest diameter accepted
+     */
+    public ResultWriter(Path file, Encoding encoding, boolean append, int begin, int end, int bufferSize) throws IOException {
+        if (encoding == null) {
+            throw new InvalidParameterException("encoding can't be null!");
+        }
+        m_Encoding = encoding;
+        m_Buffer = ByteBuffer.allocate(Math.max(bufferSize, 2 * MAX_RECORD));
+        m_Begin = begin;
+        m_End = end;
+
+        if (append) {
+            m_Channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } else {
+            m_Channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        if (encoding == Encoding.CSV && m_Channel.size() == 0) {
+            putAscii("image,x,y,diameter,result\n");
+        }
+    }
+
+    public ResultWriter(Path file, Encoding encoding, boolean append, int begin, int end) throws IOException {
+        this(file, encoding, append, begin, end, DEFAULT_BUFFER_SIZE);
+    }
+
+    public Result check(Coordinate coordinate) {
+        if (coordinate._diameter < m_Begin) return Result.TOO_SMALL;
+        if (coordinate._diameter > m_End) return Result.TOO_LARGE;
+        return Result.SUCCESS;
+    }
+
+    /**
+     * appends the records of the coordinates of the next image
+     */
+    public void write(List<Coordinate> coordinates) throws IOException {
+        if (m_Encoding == Encoding.BINARY) {
+            reserve(8);
+            m_Buffer.putInt(m_Image).putInt(coordinates.size());
+        }
+        for (Coordinate coordinate : coordinates) {
+            reserve(MAX_RECORD);
+            Result result = check(coordinate);
+            switch (m_Encoding) {
+                case TEXT:
+                    putAscii("Coordinates: X: ");
+                    putDecimal(coordinate._x);
+                    putAscii(" Y: ");
+                    putDecimal(coordinate._y);
+                    putAscii(" Diameter: ");
+                    putDecimal(coordinate._diameter);
+                    putAscii(" Result: ");
+                    putAscii(result == Result.SUCCESS ? "Success"
+                            : result == Result.TOO_SMALL ? "Failed; The diameter is too small."
+                            : "Failed; The diameter is too large.");
+                    m_Buffer.put((byte) '\n');
+                    break;
+                case CSV:
+                    putDecimal(m_Image);
+                    m_Buffer.put((byte) ',');
+                    putDecimal(coordinate._x);
+                    m_Buffer.put((byte) ',');
+                    putDecimal(coordinate._y);
+                    m_Buffer.put((byte) ',');
+                    putDecimal(coordinate._diameter);
+                    m_Buffer.put((byte) ',');
+                    putAscii(result.name());
+                    m_Buffer.put((byte) '\n');
+                    break;
+                case JSON_LINES:
+                    putAscii("{\"image\":");
+                    putDecimal(m_Image);
+                    putAscii(",\"x\":");
+                    putDecimal(coordinate._x);
+                    putAscii(",\"y\":");
+                    putDecimal(coordinate._y);
+                    putAscii(",\"diameter\":");
+                    putDecimal(coordinate._diameter);
+                    putAscii(",\"result\":\"");
+                    putAscii(result.name());
+                    putAscii("\"}\n");
+                    break;
+                default:
+                    m_Buffer.putInt(coordinate._x).putInt(coordinate._y).putInt(coordinate._diameter).put((byte) result.ordinal());
+            }
+        }
+        m_Image++;
+    }
+
+    /**
+     * writes the buffered records to the file
+     */
+    public void flush() throws IOException {
+        m_Buffer.flip();
+        while (m_Buffer.hasRemaining()) {
+            m_Channel.write(m_Buffer);
+        }
+        m_Buffer.clear();
+    }
+
+    /**
+     * flushes and closes the file
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            m_Channel.close();
+        }
+    }
+
+    private void reserve(int bytes) throws IOException {
+        if (m_Buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void putAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            m_Buffer.put((byte) s.charAt(i));
+        }
+    }
+
+    /**
+     * the decimal digits of value, without a String
+     */
+    private void putDecimal(int value) {
+        if (value == Integer.MIN_VALUE) {
+            putAscii("-2147483648");
+            return;
+        }
+        if (value < 0) {
+            m_Buffer.put((byte) '-');
+            value = -value;
+        }
+        int divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            m_Buffer.put((byte) ('0' + value / divisor % 10));
+        }
+    }
+}
@@ -1,20 +1,38 @@
 package solution;
 
 import calcCentroidsFilter.CalcCentroidsFilter;
+import dataContainers.ImageFrame;
+import imageOps.DeferredOps;
 import pmp.filter.DataTransformationFilter1;
 import pmp.interfaces.Readable;
 import pmp.interfaces.Writeable;
 
-import javax.media.jai.JAI;
 import javax.media.jai.PlanarImage;
+import java.awt.image.RenderedImage;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.io.StreamCorruptedException;
 import java.security.InvalidParameterException;
+import java.util.IllegalFormatException;
 import java.util.Objects;
 
+/**
+ * saves the images in the background: process() only hands a snapshot of the image to an ImageWriterPool and passes
+ * the image on at once. Before the end of stream is passed on, all images are written and the writer threads stop.
+ *
+ * an outputPath containing %d is formatted with the number of the image (e.g. "out/frame%03d.png"), otherwise every
+ * image replaces the previous one.
+ */
 public class SaveFilter extends DataTransformationFilter1<PlanarImage> implements PropertyChangeListener {
     private String outputPath = "";
+    private ImageWriterPool.Format format = ImageWriterPool.Format.JPEG;
+    private ImageWriterPool.Backpressure backpressure = ImageWriterPool.Backpressure.BLOCK;
+    private int writerThreads = 1;
+    private int queueCapacity = 4;
+
+    private ImageWriterPool writers = null;
+    private int imageNumber = 0;
 
     SaveFilter(Readable<PlanarImage> input) throws InvalidParameterException {
         super(input);
@@ -28,7 +46,12 @@ public class SaveFilter extends DataTransformationFilter1<PlanarImage> implement
     protected void process(PlanarImage entity) {
         if(!outputPath.isEmpty()) {
             try {
-                JAI.create("filestore", entity.getAsBufferedImage(), outputPath, "JPEG");
+                // the next filters may change the image in place while it waits for its writer; a deferred
+                // operation is rendered tile by tile by the writer
+                RenderedImage image = DeferredOps.isDeferred(entity) ? entity : ImageFrame.of(entity).copy().getImage();
+                String path = outputPath.contains("%") ? String.format(outputPath, imageNumber) : outputPath;
+                imageNumber++;
+                getWriters().submit(image, path);
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -37,6 +60,36 @@ public class SaveFilter extends DataTransformationFilter1<PlanarImage> implement
         }
     }
 
+    @Override
+    protected void beforeSendingEndingSignal() throws StreamCorruptedException {
+        imageNumber = 0;
+        ImageWriterPool pool = writers;
+        if (pool != null) {
+            pool.close();       // kept for getDroppedImages(), the next image gets new writers
+        }
+    }
+
+    private synchronized ImageWriterPool getWriters() {
+        if (writers == null || writers.isClosed()) {
+            writers = new ImageWriterPool(format, backpressure, writerThreads, queueCapacity);
+        }
+        return writers;
+    }
+
+    /**
+     * the writers are replaced when a setting changes; the images of the old writers are written first
+     */
+    private synchronized void replaceWriters() {
+        if (writers != null) {
+            try {
+                writers.close();
+            } catch (StreamCorruptedException e) {
+                e.printStackTrace();
+            }
+            writers = null;
+        }
+    }
+
     /*UE3 Beans Area*/
 
     public SaveFilter(){}
@@ -47,12 +100,92 @@ public class SaveFilter extends DataTransformationFilter1<PlanarImage> implement
         return outputPath;
     }
 
+    /**
+     * @throws InvalidParameterException if the path contains a % which is not a valid pattern for the image number
+     */
     public void setOutputPath(String outputPath) {
+        if (outputPath == null) {
+            throw new InvalidParameterException("outputPath can't be null!");
+        }
+        if (outputPath.contains("%")) {
+            try {
+                String.format(outputPath, 0);
+            } catch (IllegalFormatException e) {
+                throw new InvalidParameterException("outputPath \"" + outputPath + "\" is no valid pattern for the image number: " + e.getMessage());
+            }
+        }
         String tempPath = this.outputPath;
         this.outputPath = outputPath;
         listeners.firePropertyChange("outputPath", tempPath, outputPath);
     }
 
+    public ImageWriterPool.Format getFormat() {
+        return format;
+    }
+
+    public void setFormat(ImageWriterPool.Format format) {
+        if (format == null) {
+            throw new InvalidParameterException("format can't be null!");
+        }
+        ImageWriterPool.Format tempFormat = this.format;
+        replaceWriters();
+        this.format = format;
+        listeners.firePropertyChange("format", tempFormat, format);
+    }
+
+    public ImageWriterPool.Backpressure getBackpressure() {
+        return backpressure;
+    }
+
+    public void setBackpressure(ImageWriterPool.Backpressure backpressure) {
+        if (backpressure == null) {
+            throw new InvalidParameterException("backpressure can't be null!");
+        }
+        ImageWriterPool.Backpressure tempBackpressure = this.backpressure;
+        replaceWriters();
+        this.backpressure = backpressure;
+        listeners.firePropertyChange("backpressure", tempBackpressure, backpressure);
+    }
+
+    public int getWriterThreads() {
+        return writerThreads;
+    }
+
+    public void setWriterThreads(int writerThreads) {
+        if (writerThreads < 1) {
+            throw new InvalidParameterException("at least one writer thread is needed!");
+        }
+        int tempWriterThreads = this.writerThreads;
+        replaceWriters();
+        this.writerThreads = writerThreads;
+        listeners.firePropertyChange("writerThreads", tempWriterThreads, writerThreads);
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * number of images which may wait for each writer thread
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        if (queueCapacity < 1) {
+            throw new InvalidParameterException("the queue capacity must be at least 1!");
+        }
+        int tempQueueCapacity = this.queueCapacity;
+        replaceWriters();
+        this.queueCapacity = queueCapacity;
+        listeners.firePropertyChange("queueCapacity", tempQueueCapacity, queueCapacity);
+    }
+
+    /**
+     * number of images discarded because the writers were busy (Backpressure.DROP)
+     */
+    public long getDroppedImages() {
+        ImageWriterPool pool = writers;
+        return pool == null ? 0 : pool.getDroppedImages();
+    }
+
     protected PropertyChangeSupport listeners = new PropertyChangeSupport(this);
 
     public void addPropertyChangeListener(PropertyChangeListener listener) {
@@ -13,10 +13,18 @@ public class SaveFilterBeanInfo extends SimpleBeanInfo {
     public PropertyDescriptor[] getPropertyDescriptors() {
         try {
             PropertyDescriptor prop1 = new PropertyDescriptor("outputPath", beanClass);
+            PropertyDescriptor prop2 = new PropertyDescriptor("format", beanClass);
+            PropertyDescriptor prop3 = new PropertyDescriptor("backpressure", beanClass);
+            PropertyDescriptor prop4 = new PropertyDescriptor("writerThreads", beanClass);
+            PropertyDescriptor prop5 = new PropertyDescriptor("queueCapacity", beanClass);
 
             prop1.setBound(true);
+            prop2.setBound(true);
+            prop3.setBound(true);
+            prop4.setBound(true);
+            prop5.setBound(true);
 
-            return new PropertyDescriptor[]{prop1};
+            return new PropertyDescriptor[]{prop1, prop2, prop3, prop4, prop5};
         } catch (IntrospectionException ex) {
             throw new Error(ex.toString());
         }
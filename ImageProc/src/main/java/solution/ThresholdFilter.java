@@ -1,12 +1,14 @@
 package solution;
 
 import calcCentroidsFilter.CalcCentroidsFilter;
+import dataContainers.ImageFrame;
+import imageOps.ThresholdEngine;
+import imageOps.TileExecutor;
 import pmp.filter.DataTransformationFilter2;
 import pmp.interfaces.Readable;
 import pmp.interfaces.Writeable;
 
 import javax.media.jai.PlanarImage;
-import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
@@ -32,27 +34,19 @@ public class ThresholdFilter extends DataTransformationFilter2<PlanarImage, Plan
     }
 
     private float threshold = 0.15f;
+    private TileExecutor tileExecutor = TileExecutor.getDefault();
+
+    public void setTileExecutor(TileExecutor tileExecutor) {
+        this.tileExecutor = tileExecutor;
+    }
 
     @Override
     protected PlanarImage process(PlanarImage image) {
-        Window.show(image);
-        BufferedImage bufferedImage = image.getAsBufferedImage();
-        for (int x = 0; x < image.getWidth(); x++) {
-            for (int y = 0; y < image.getHeight(); y++) {
-                int color = bufferedImage.getRGB(x, y);
-
-                int red = (color >>> 16) & 0xFF;
-                int green = (color >>> 8) & 0xFF;
-                int blue = (color) & 0xFF;
-
-                float brightness = (red * 0.2126f + green * 0.7152f + blue * 0.0722f) / 255;
-
-                if (brightness <= threshold) {
-                    bufferedImage.setRGB(x, y, 0xFFFFFFFF);
-                }
-            }
-        }
-        return PlanarImage.wrapRenderedImage(bufferedImage);
+        PreviewService.getInstance().publish("ThresholdFilter", image);
+        // the incoming frame may still be shown by the preview, so the threshold is applied to a copy
+        ImageFrame frame = ImageFrame.of(image).copy();
+        ThresholdEngine.apply(frame.getImage(), threshold, tileExecutor);
+        return frame.toPlanarImage();
 
     }
 
@@ -2,23 +2,38 @@ package solution;
 
 import com.sun.media.jai.widget.DisplayJAI;
 
-import javax.media.jai.PlanarImage;
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.RenderedImage;
 
+/**
+ * the window of one stage of the PreviewService, reused for all its images. Only used on the event dispatch thread.
+ */
 class Window {
 
-    static void show(PlanarImage image) {
-        JFrame frame = new JFrame();
-        frame.setTitle("DisplayJAI");
+    private final String title;
+    private JFrame frame = null;
+    private DisplayJAI dj = null;
 
-        Container contentPane = frame.getContentPane();
-        contentPane.setLayout(new BorderLayout());
+    Window(String title) {
+        this.title = title;
+    }
+
+    void display(RenderedImage image) {
+        if (frame == null) {
+            frame = new JFrame();
+            frame.setTitle(title);
+
+            Container contentPane = frame.getContentPane();
+            contentPane.setLayout(new BorderLayout());
 
-        DisplayJAI dj = new DisplayJAI(image);
-        contentPane.add(new JScrollPane(dj), BorderLayout.CENTER);
-        frame.setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE);
-        frame.setSize(500, 300);
-        frame.setVisible(true);
+            dj = new DisplayJAI(image);
+            contentPane.add(new JScrollPane(dj), BorderLayout.CENTER);
+            frame.setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE);
+            frame.setSize(500, 300);
+            frame.setVisible(true);     // a window closed by the user stays closed
+        } else {
+            dj.set(image);
+        }
     }
 }
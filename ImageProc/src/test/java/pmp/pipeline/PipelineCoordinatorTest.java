@@ -0,0 +1,155 @@
+package pmp.pipeline;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pmp.filter.DataTransformationFilter2;
+import pmp.filter.Sink;
+import pmp.filter.Source;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class PipelineCoordinatorTest {
+
+    private static final int COUNT = 5000;
+
+    @Rule
+    public TemporaryFolder m_Folder = new TemporaryFolder();
+
+    // the stages are created by the worker processes, so they are public and configured through properties
+
+    public static class Numbers extends Source<Integer> {
+        private int m_Next = 0;
+
+        public Integer read() {
+            return m_Next < COUNT ? m_Next++ : null;
+        }
+    }
+
+    public static class Increment extends DataTransformationFilter2<Integer, Integer> {
+        protected Integer process(Integer entity) {
+            return entity + 1;
+        }
+    }
+
+    public static class Failing extends DataTransformationFilter2<Integer, Integer> {
+        protected Integer process(Integer entity) {
+            if (entity == COUNT / 2) {
+                throw new IllegalStateException("failing on purpose");
+            }
+            return entity;
+        }
+    }
+
+    /**
+     * writes the values to a file once the end of stream has been read
+     */
+    public static class Collector extends Sink<Integer> {
+        private final List<String> m_Values = new ArrayList<String>();
+        private String m_File;
+
+        public String getFile() {
+            return m_File;
+        }
+
+        public void setFile(String file) {
+            m_File = file;
+        }
+
+        @Override
+        public void write(Integer value) {
+            m_Values.add(String.valueOf(value));
+        }
+
+        @Override
+        protected void afterEndingSignal() throws StreamCorruptedException {
+            try {
+                Files.write(Paths.get(m_File), m_Values);
+            } catch (IOException e) {
+                StreamCorruptedException sce = new StreamCorruptedException("can't write " + m_File);
+                sce.initCause(e);
+                throw sce;
+            }
+        }
+    }
+
+    public static class FailingAtTheEnd extends Sink<Integer> {
+        @Override
+        protected void afterEndingSignal() throws StreamCorruptedException {
+            throw new StreamCorruptedException("disk full");
+        }
+    }
+
+    private List<StageReport> runAcrossBothWorkers(PipelineCoordinator coordinator) throws Exception {
+        Path file = m_Folder.newFile().toPath();
+        List<StageReport> reports = coordinator.run(new PipelineDescription()
+                .stage(Numbers.class, 0)
+                .stage(Increment.class, 1)
+                .stage(Collector.class, 0).property("file", file.toString()));
+
+        List<String> values = Files.readAllLines(file);
+        assertEquals(COUNT, values.size());
+        for (int i = 0; i < COUNT; i++) {
+            assertEquals(String.valueOf(i + 1), values.get(i));
+        }
+        return reports;
+    }
+
+    @Test(timeout = 60000)
+    public void runsAPipelineSplitAcrossTwoWorkers() throws Exception {
+        try (PipelineCoordinator coordinator = new PipelineCoordinator()) {
+            coordinator.launchWorkers(2);
+            List<StageReport> reports = runAcrossBothWorkers(coordinator);
+
+            assertEquals(3, reports.size());
+            int[] workers = {0, 1, 0};
+            for (int i = 0; i < reports.size(); i++) {
+                StageReport report = reports.get(i);
+                assertEquals(i, report.getIndex());
+                assertEquals(workers[i], report.getWorker());
+                assertEquals(COUNT, report.getItems());
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void aFailingStageFailsTheRunAndTheNextRunStillWorks() throws Exception {
+        try (PipelineCoordinator coordinator = new PipelineCoordinator()) {
+            coordinator.launchWorkers(2);
+            try {
+                coordinator.run(new PipelineDescription()
+                        .stage(Numbers.class, 0)
+                        .stage(Failing.class, 1)
+                        .stage(Sink.class, 0));
+                fail("the failure of the stage was not reported");
+            } catch (StreamCorruptedException expected) {
+                // the workers have to be in step again for the next run
+            }
+            runAcrossBothWorkers(coordinator);
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void aSinkFailingAfterTheEndOfStreamFailsTheRun() throws Exception {
+        try (PipelineCoordinator coordinator = new PipelineCoordinator()) {
+            coordinator.launchWorkers(2);
+            try {
+                coordinator.run(new PipelineDescription()
+                        .stage(Numbers.class, 1)
+                        .stage(FailingAtTheEnd.class, 0));
+                fail("the failure of the sink was not reported");
+            } catch (StreamCorruptedException expected) {
+                // the sink had read the whole stream
+            }
+        }
+    }
+}
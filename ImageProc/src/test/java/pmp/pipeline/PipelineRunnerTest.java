@@ -0,0 +1,127 @@
+package pmp.pipeline;
+
+import org.junit.Test;
+import pmp.filter.DataTransformationFilter2;
+import pmp.filter.Sink;
+import pmp.filter.Source;
+import pmp.pipes.BoundedPipe;
+import pmp.pipes.BufferedSyncPipe;
+import pmp.pipes.MpmcRingBufferPipe;
+
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PipelineRunnerTest {
+
+    private static final int COUNT = 20000;
+
+    private static class Numbers extends Source<Integer> {
+        private int m_Next = 0;
+
+        public Integer read() {
+            return m_Next < COUNT ? m_Next++ : null;
+        }
+    }
+
+    private static class Increment extends DataTransformationFilter2<Integer, Integer> {
+        protected Integer process(Integer entity) {
+            return entity + 1;
+        }
+    }
+
+    private static class Failing extends DataTransformationFilter2<Integer, Integer> {
+        protected Integer process(Integer entity) {
+            if (entity == COUNT / 2) {
+                throw new IllegalStateException("failing on purpose");
+            }
+            return entity;
+        }
+    }
+
+    private static class Collector extends Sink<Integer> {
+        final List<Integer> m_Values = new ArrayList<Integer>();
+
+        @Override
+        public void write(Integer value) {
+            m_Values.add(value);
+        }
+    }
+
+    private static void runInOrder(IntFunction<BoundedPipe<Object>> pipes) throws Exception {
+        Collector sink = new Collector();
+        PipelineRunner runner = new PipelineRunner(new Numbers(), Arrays.asList(new Increment(), new Increment()), sink,
+                PipelineRunner.DEFAULT_BUFFER_SIZE, pipes);
+        runner.start();
+        runner.join();
+
+        assertNull(runner.getFailure());
+        assertEquals(COUNT, sink.m_Values.size());
+        for (int i = 0; i < COUNT; i++) {
+            assertEquals(i + 2, sink.m_Values.get(i).intValue());
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void spscPipesKeepOrderAndTerminate() throws Exception {
+        for (int i = 0; i < 20; i++) {      // the sink must never be taken for terminating early
+            runInOrder(PipelineRunner.SPSC_PIPES);
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void mpmcPipesKeepOrderAndTerminate() throws Exception {
+        runInOrder(MpmcRingBufferPipe::new);
+    }
+
+    @Test(timeout = 30000)
+    public void bufferedSyncPipesKeepOrderAndTerminate() throws Exception {
+        runInOrder(BufferedSyncPipe::new);
+    }
+
+    @Test(timeout = 30000)
+    public void aFailingStageBreaksThePipeline() throws Exception {
+        PipelineRunner runner = new PipelineRunner(new Numbers(), Arrays.asList(new Failing(), new Increment()), new Sink<Integer>());
+        runner.start();
+        try {
+            runner.join();
+            fail("the failure was not reported");
+        } catch (StreamCorruptedException expected) {
+            assertTrue(runner.getFailure() instanceof IllegalStateException);
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void aSinkFailingAfterTheEndOfStreamWasSentFailsThePipeline() throws Exception {
+        Source<Integer> three = new Source<Integer>() {
+            private int m_Next = 0;
+
+            public Integer read() {
+                return m_Next < 3 ? m_Next++ : null;
+            }
+        };
+        Sink<Integer> full = new Sink<Integer>() {
+            @Override
+            public void write(Integer value) throws StreamCorruptedException {
+                throw new StreamCorruptedException("disk full");
+            }
+        };
+        PipelineRunner runner = new PipelineRunner(three, new ArrayList<Increment>(), full);
+        runner.start();
+        try {
+            runner.join();
+            fail("the failure of the sink was not reported");
+        } catch (StreamCorruptedException expected) {
+            assertTrue(runner.getFailure() != null);
+        }
+        assertFalse(full.hasCompleted());
+    }
+}
@@ -0,0 +1,219 @@
+package pmp.pipes;
+
+import org.junit.Test;
+import pmp.interfaces.IOable;
+
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncPipeProxyTest {
+
+    private static final int MAX_IN_FLIGHT = 3;
+    private static final int COUNT = 10;
+
+    /**
+     * a remote pipe that only accepts a batch (or returns one) when the test allows it
+     */
+    private static class SlowRemote implements IOable<Integer, Integer> {
+        final Semaphore m_Writes = new Semaphore(0);
+        final Semaphore m_Reads = new Semaphore(0);
+        final List<Integer> m_Written = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<List<Integer>> m_Batches = new ArrayList<List<Integer>>();
+        volatile StreamCorruptedException m_WriteFailure = null;
+        int m_ReadCalls = 0;
+
+        @Override
+        public void write(Integer value) throws StreamCorruptedException {
+            writeBatch(Collections.singletonList(value));
+        }
+
+        @Override
+        public void writeBatch(List<Integer> values) throws StreamCorruptedException {
+            m_Writes.acquireUninterruptibly();
+            if (m_WriteFailure != null) throw m_WriteFailure;
+            m_Written.addAll(values);
+        }
+
+        @Override
+        public Integer read() throws StreamCorruptedException {
+            return readBatch(1).get(0);
+        }
+
+        @Override
+        public List<Integer> readBatch(int max) throws StreamCorruptedException {
+            m_Reads.acquireUninterruptibly();       // a remote that doesn't answer ignores interrupts
+            synchronized (m_Batches) {
+                if (m_ReadCalls == m_Batches.size()) throw new StreamCorruptedException("connection reset");
+                return m_Batches.get(m_ReadCalls++);
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void boundsTheEntitiesInFlightAndAcknowledgesThemInOrder() throws Exception {
+        SlowRemote remote = new SlowRemote();
+        AsyncPipeProxy<Integer> proxy = new AsyncPipeProxy<Integer>(remote, MAX_IN_FLIGHT, 4);
+        List<Long> totals = Collections.synchronizedList(new ArrayList<Long>());
+        Semaphore acknowledged = new Semaphore(0);       // the listener is called after flush() has returned
+        proxy.setAckListener(new AsyncPipeProxy.AckListener() {
+            public void acknowledged(int count, long total) {
+                totals.add(total);
+                acknowledged.release(count);
+            }
+
+            public void failed(StreamCorruptedException e) {
+                fail("unexpected failure " + e);
+            }
+        });
+
+        AtomicInteger returned = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; i < COUNT; i++) {
+                    proxy.write(i);
+                    returned.incrementAndGet();
+                }
+                proxy.write(null);
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        writer.start();
+
+        Thread.sleep(200);
+        assertEquals(MAX_IN_FLIGHT, returned.get());
+        assertEquals(0, proxy.getAcknowledged());
+
+        remote.m_Writes.release(COUNT + 1);
+        writer.join();
+        proxy.close();
+
+        assertNull(failure.get());
+        List<Integer> expected = new ArrayList<Integer>();
+        for (int i = 0; i < COUNT; i++) {
+            expected.add(i);
+        }
+        expected.add(null);
+        assertEquals(expected, remote.m_Written);
+        acknowledged.acquire(COUNT + 1);
+        assertEquals(0, acknowledged.availablePermits());
+        assertEquals(COUNT + 1, proxy.getAcknowledged());
+        for (int i = 1; i < totals.size(); i++) {
+            assertTrue(totals.get(i - 1) < totals.get(i));
+        }
+        assertEquals(COUNT + 1, totals.get(totals.size() - 1).longValue());
+    }
+
+    @Test(timeout = 10000)
+    public void aWriteFailureIsThrownByTheNextWriteAndByFlush() throws Exception {
+        SlowRemote remote = new SlowRemote();
+        remote.m_WriteFailure = new StreamCorruptedException("disk full");
+        AsyncPipeProxy<Integer> proxy = new AsyncPipeProxy<Integer>(remote, MAX_IN_FLIGHT, 4);
+        AtomicReference<StreamCorruptedException> reported = new AtomicReference<StreamCorruptedException>();
+        CountDownLatch failed = new CountDownLatch(1);
+        proxy.setAckListener(new AsyncPipeProxy.AckListener() {
+            public void acknowledged(int count, long total) {
+                fail("nothing may be acknowledged");
+            }
+
+            public void failed(StreamCorruptedException e) {
+                reported.set(e);
+                failed.countDown();
+            }
+        });
+
+        proxy.write(1);
+        remote.m_Writes.release(10);
+        try {
+            proxy.flush();
+            fail("flush must throw the write failure");
+        } catch (StreamCorruptedException e) {
+            assertSame(remote.m_WriteFailure, e.getCause());
+        }
+        try {
+            proxy.write(2);
+            fail("write must throw the write failure");
+        } catch (StreamCorruptedException e) {
+            assertSame(remote.m_WriteFailure, e.getCause());
+        }
+        failed.await();
+        assertSame(remote.m_WriteFailure, reported.get());
+        assertEquals(0, proxy.getAcknowledged());
+        proxy.close();
+    }
+
+    @Test(timeout = 10000)
+    public void aReadFailureIsThrownByEveryLaterRead() throws Exception {
+        SlowRemote remote = new SlowRemote();
+        remote.m_Batches.add(Arrays.asList(1, 2));
+        remote.m_Reads.release(10);
+        AsyncPipeProxy<Integer> proxy = new AsyncPipeProxy<Integer>(remote, MAX_IN_FLIGHT, 4);
+
+        assertEquals(1, proxy.read().intValue());
+        assertEquals(Collections.singletonList(2), proxy.readBatch(4));
+        for (int i = 0; i < 3; i++) {
+            try {
+                proxy.read();
+                fail("read must throw the read failure");
+            } catch (StreamCorruptedException e) {
+                assertEquals("connection reset", e.getCause().getMessage());
+            }
+        }
+        try {
+            proxy.readBatch(4);
+            fail("readBatch must throw the read failure");
+        } catch (StreamCorruptedException e) {
+            assertNotNull(e.getCause());
+        }
+        proxy.close();
+    }
+
+    @Test(timeout = 10000)
+    public void closingWakesUpABlockedReader() throws Exception {
+        SlowRemote remote = new SlowRemote();
+        AsyncPipeProxy<Integer> proxy = new AsyncPipeProxy<Integer>(remote, MAX_IN_FLIGHT, 4);
+        AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread reader = new Thread(() -> {
+            try {
+                proxy.read();
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        reader.start();
+        Thread.sleep(100);
+
+        proxy.close();
+        reader.join();
+
+        assertTrue(failure.get() instanceof StreamCorruptedException);
+        try {
+            proxy.read();
+            fail("a closed proxy can't be read");
+        } catch (StreamCorruptedException e) {
+            // expected
+        }
+        try {
+            proxy.write(1);
+            fail("a closed proxy can't be written");
+        } catch (StreamCorruptedException e) {
+            // expected
+        }
+        remote.m_Reads.release(10);     // lets the prefetch thread end
+    }
+}
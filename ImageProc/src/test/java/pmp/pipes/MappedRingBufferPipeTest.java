@@ -0,0 +1,121 @@
+package pmp.pipes;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class MappedRingBufferPipeTest {
+
+    private static final int CAPACITY = 1024;
+
+    // record lengths: 4 bytes of length and the padded bytes; 848 is larger than half of the buffer
+    private static final int[] SIZES = {244, 844, 0, 12, 500, 844, 1020, 3, 244, 1, 844};
+
+    @Rule
+    public TemporaryFolder m_Folder = new TemporaryFolder();
+
+    /*
+     * the bytes of a byte[] as they are
+     */
+    private static class BytesCodec implements FrameCodec<byte[]> {
+        public ByteBuffer encode(byte[] value, ByteBuffer out) {
+            out = FrameCodec.ensureRemaining(out, value.length);
+            out.put(value);
+            return out;
+        }
+
+        public byte[] decode(ByteBuffer in) {
+            byte[] value = new byte[in.remaining()];
+            in.get(value);
+            return value;
+        }
+    }
+
+    private static byte[] pattern(int index) {
+        byte[] bytes = new byte[SIZES[index % SIZES.length]];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (index + i);
+        }
+        return bytes;
+    }
+
+    @Test(timeout = 20000)
+    public void recordsOfMixedSizesWrapAroundTheBuffer() throws Exception {
+        Path file = m_Folder.newFile().toPath();
+        MappedRingBufferPipe<byte[]> reader = MappedRingBufferPipe.create(file, CAPACITY, new BytesCodec());
+        MappedRingBufferPipe<byte[]> writer = MappedRingBufferPipe.open(file, new BytesCodec());
+        assertEquals(CAPACITY, reader.capacity());
+
+        int count = 5000;
+        AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread thread = new Thread(() -> {
+            try {
+                List<byte[]> batch = new ArrayList<byte[]>();
+                for (int i = 0; i < count; i++) {
+                    if (i % 3 == 0) {
+                        writer.write(pattern(i));
+                    } else {
+                        batch.add(pattern(i));
+                        if (batch.size() == 2) {
+                            writer.writeBatch(batch);
+                            batch.clear();
+                        }
+                    }
+                }
+                batch.add(null);
+                writer.writeBatch(batch);
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        thread.start();
+
+        int read = 0;
+        boolean end = false;
+        while (!end) {
+            List<byte[]> values = read % 2 == 0 ? reader.readBatch(4) : Collections.singletonList(reader.read());
+            for (byte[] value : values) {
+                if (value == null) {
+                    end = true;
+                    break;
+                }
+                assertArrayEquals(pattern(read), value);
+                read++;
+            }
+        }
+        thread.join();
+
+        assertNull(failure.get());
+        assertEquals(count, read);
+        assertNull(reader.read());
+        writer.close();
+        reader.close();
+    }
+
+    @Test
+    public void aRecordLargerThanTheBufferIsRejected() throws Exception {
+        Path file = m_Folder.newFile().toPath();
+        try (MappedRingBufferPipe<byte[]> pipe = MappedRingBufferPipe.create(file, CAPACITY, new BytesCodec())) {
+            pipe.write(new byte[CAPACITY - 4]);
+            assertEquals(CAPACITY - 4, pipe.read().length);
+            try {
+                pipe.write(new byte[CAPACITY - 3]);
+                fail("the record does not fit");
+            } catch (StreamCorruptedException expected) {
+            }
+        }
+    }
+}
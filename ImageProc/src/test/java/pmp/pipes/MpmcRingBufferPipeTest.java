@@ -0,0 +1,126 @@
+package pmp.pipes;
+
+import org.junit.Test;
+
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MpmcRingBufferPipeTest {
+
+    private static final int WRITERS = 4;
+    private static final int COUNT = 50000;
+
+    @Test(timeout = 20000)
+    public void keepsTheOrderOfEveryWriterAndEndsWithOneEndingSignal() throws Exception {
+        MpmcRingBufferPipe<int[]> pipe = new MpmcRingBufferPipe<int[]>(8);
+        AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        List<Thread> writers = new ArrayList<Thread>();
+        for (int w = 0; w < WRITERS; w++) {
+            final int writer = w;
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < COUNT; i++) {
+                        pipe.write(new int[]{writer, i});
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            });
+            writers.add(thread);
+            thread.start();
+        }
+        Thread closer = new Thread(() -> {
+            try {
+                for (Thread thread : writers) {
+                    thread.join();
+                }
+                pipe.write(null);     // the writers agree on a single ending signal
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        closer.start();
+
+        int[] next = new int[WRITERS];
+        int[] value;
+        while ((value = pipe.read()) != null) {
+            assertEquals(next[value[0]]++, value[1]);
+        }
+        closer.join();
+
+        assertNull(failure.get());
+        for (int w = 0; w < WRITERS; w++) {
+            assertEquals(COUNT, next[w]);
+        }
+        assertEquals(0, pipe.size());
+    }
+
+    @Test(timeout = 20000)
+    public void severalReadersTakeEveryEntityOnce() throws Exception {
+        MpmcRingBufferPipe<Integer> pipe = new MpmcRingBufferPipe<Integer>(8);
+        int readers = 3;
+        boolean[] seen = new boolean[COUNT];
+        AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int r = 0; r < readers; r++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    Integer value;
+                    while ((value = pipe.read()) != null) {
+                        synchronized (seen) {
+                            assertTrue(!seen[value]);
+                            seen[value] = true;
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (int i = 0; i < COUNT; i++) {
+            pipe.write(i);
+        }
+        for (int r = 0; r < readers; r++) {
+            pipe.write(null);       // one ending signal per reader
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(failure.get());
+        for (int i = 0; i < COUNT; i++) {
+            assertTrue(seen[i]);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void breakingTerminatesABlockedWriter() throws Exception {
+        MpmcRingBufferPipe<Integer> pipe = new MpmcRingBufferPipe<Integer>(2);
+        pipe.write(1);
+        pipe.write(2);
+        AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread writer = new Thread(() -> {
+            try {
+                pipe.write(3);
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        writer.start();
+        Thread.sleep(50);
+        pipe.breakPipe();
+        writer.join();
+
+        assertTrue(failure.get() instanceof StreamCorruptedException);
+        assertEquals(1, pipe.fullWaits());
+        assertEquals(0, pipe.emptyWaits());
+    }
+}
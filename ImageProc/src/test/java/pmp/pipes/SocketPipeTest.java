@@ -0,0 +1,153 @@
+package pmp.pipes;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StreamCorruptedException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SocketPipeTest {
+
+    private ServerSocketChannel m_Server;
+    private InetSocketAddress m_Address;
+    private ExecutorService m_Writer;
+
+    @Before
+    public void listen() throws Exception {
+        m_Server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        m_Address = (InetSocketAddress) m_Server.getLocalAddress();
+        m_Writer = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void close() throws Exception {
+        m_Writer.shutdownNow();
+        m_Server.close();
+    }
+
+    private <T> Future<T> write(Callable<T> task) {
+        return m_Writer.submit(task);
+    }
+
+    @Test(timeout = 20000)
+    public void theWriterWaitsWhenTheWindowIsFull() throws Exception {
+        int window = 4;
+        int count = 1000;
+        AtomicInteger written = new AtomicInteger();
+        Future<?> writer = write(() -> {
+            try (SocketPipe<Integer> pipe = SocketPipe.connect(m_Address, window)) {
+                for (int i = 0; i < count; i++) {
+                    pipe.write(i);
+                    written.incrementAndGet();
+                }
+                pipe.write(null);
+            }
+            return null;
+        });
+        SocketPipe<Integer> reader = SocketPipe.accept(m_Server, window);
+
+        Thread.sleep(300);      // nothing is read, so nothing is acknowledged
+        assertEquals(window, written.get());
+        assertEquals(window, reader.getMetrics().getCapacity());
+
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, reader.read().intValue());
+        }
+        assertNull(reader.read());
+        writer.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test(timeout = 20000)
+    public void framesLargerThanTheBufferArriveWhole() throws Exception {
+        List<Integer> sizes = Arrays.asList(10, 200000, 3, (1 << 16) - 4, 1 << 16, 1 << 20, 7);
+        Future<?> writer = write(() -> {
+            try (SocketPipe<byte[]> pipe = SocketPipe.connect(m_Address, 2)) {
+                for (int size : sizes) {
+                    pipe.write(pattern(size));
+                }
+                pipe.write(null);
+            }
+            return null;
+        });
+        SocketPipe<byte[]> reader = SocketPipe.accept(m_Server, 2);
+
+        for (int size : sizes) {
+            assertArrayEquals(pattern(size), reader.read());
+        }
+        assertNull(reader.read());
+        writer.get(10, TimeUnit.SECONDS);
+    }
+
+    private static byte[] pattern(int size) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) (i * 31 + size);
+        }
+        return bytes;
+    }
+
+    @Test(timeout = 20000)
+    public void writingTheEndingSignalWaitsUntilItIsRead() throws Exception {
+        Future<Boolean> writer = write(() -> {
+            SocketPipe<String> pipe = SocketPipe.connect(m_Address, SocketPipe.DEFAULT_WINDOW);
+            pipe.writeBatch(Arrays.asList("a", "b", null));
+            try {
+                pipe.write("c");
+                return false;
+            } catch (StreamCorruptedException expected) {
+                return true;
+            }
+        });
+        SocketPipe<String> reader = SocketPipe.accept(m_Server, SocketPipe.DEFAULT_WINDOW);
+
+        Thread.sleep(300);
+        assertFalse(writer.isDone());
+
+        List<String> values = new ArrayList<String>();
+        while (values.isEmpty() || values.get(values.size() - 1) != null) {
+            values.addAll(reader.readBatch(10));
+        }
+        assertEquals(Arrays.asList("a", "b", null), values);
+        assertTrue(writer.get(10, TimeUnit.SECONDS));
+        assertNull(reader.read());      // the ending signal is repeated
+        assertEquals(Arrays.asList((String) null), reader.readBatch(10));
+    }
+
+    @Test(timeout = 20000)
+    public void aClosedWriterBreaksTheReader() throws Exception {
+        Future<?> writer = write(() -> {
+            SocketPipe<Integer> pipe = SocketPipe.connect(m_Address, 4);
+            pipe.write(1);
+            pipe.close();
+            return null;
+        });
+        SocketPipe<Integer> reader = SocketPipe.accept(m_Server, 4);
+        writer.get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, reader.read().intValue());
+        try {
+            reader.read();
+            fail("the connection was closed before the end of stream");
+        } catch (StreamCorruptedException expected) {
+        }
+    }
+}
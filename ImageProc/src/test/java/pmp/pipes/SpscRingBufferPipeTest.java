@@ -0,0 +1,89 @@
+package pmp.pipes;
+
+import org.junit.Test;
+
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SpscRingBufferPipeTest {
+
+    private static final int COUNT = 100000;
+
+    @Test(timeout = 10000)
+    public void keepsOrderAndEndsWithTheEndingSignal() throws Exception {
+        SpscRingBufferPipe<Integer> pipe = new SpscRingBufferPipe<Integer>(4);
+        AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; i < COUNT; i++) {
+                    pipe.write(i);
+                }
+                pipe.write(null);
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        writer.start();
+
+        List<Integer> values = new ArrayList<Integer>();
+        Integer value;
+        while ((value = pipe.read()) != null) {
+            values.add(value);
+        }
+        writer.join();
+
+        assertNull(failure.get());
+        assertEquals(COUNT, values.size());
+        for (int i = 0; i < COUNT; i++) {
+            assertEquals(i, values.get(i).intValue());
+        }
+        assertEquals(0, pipe.size());
+    }
+
+    @Test
+    public void capacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals(8, new SpscRingBufferPipe<Integer>(5).capacity());
+    }
+
+    @Test(timeout = 10000)
+    public void breakingTerminatesABlockedReader() throws Exception {
+        SpscRingBufferPipe<Integer> pipe = new SpscRingBufferPipe<Integer>(4);
+        AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread reader = new Thread(() -> {
+            try {
+                pipe.read();
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        reader.start();
+        Thread.sleep(50);
+        pipe.breakPipe();
+        reader.join();
+
+        assertTrue(failure.get() instanceof StreamCorruptedException);
+        assertEquals(1, pipe.emptyWaits());
+        assertEquals(0, pipe.fullWaits());
+    }
+
+    @Test
+    public void bufferedEntitiesCanBeReadAfterBreaking() throws Exception {
+        SpscRingBufferPipe<Integer> pipe = new SpscRingBufferPipe<Integer>(4);
+        pipe.write(1);
+        pipe.breakPipe();
+
+        assertEquals(1, pipe.read().intValue());
+        try {
+            pipe.write(2);
+            fail("write to a broken pipe");
+        } catch (StreamCorruptedException expected) {
+        }
+    }
+}
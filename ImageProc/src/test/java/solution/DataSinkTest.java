@@ -0,0 +1,70 @@
+package solution;
+
+import dataContainers.Coordinate;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pmp.filter.AbstractFilter;
+import pmp.filter.Source;
+import pmp.pipeline.PipelineRunner;
+
+import java.io.File;
+import java.io.StreamCorruptedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class DataSinkTest {
+
+    private static final int IMAGES = 3;
+
+    @Rule
+    public TemporaryFolder m_Folder = new TemporaryFolder();
+
+    private static class Measurements extends Source<ArrayList<Coordinate>> {
+        private int m_Next = 0;
+
+        public ArrayList<Coordinate> read() {
+            return m_Next++ < IMAGES ? new ArrayList<Coordinate>(Arrays.asList(new Coordinate(m_Next, 2, 15))) : null;
+        }
+    }
+
+    private static PipelineRunner runner(DataSink sink) {
+        return new PipelineRunner(new Measurements(), new ArrayList<AbstractFilter<?, ?>>(), sink);
+    }
+
+    @Test(timeout = 20000)
+    public void theResultsAreCompleteWhenThePipelineHasFinished() throws Exception {
+        Path file = m_Folder.getRoot().toPath().resolve("results.txt");
+        DataSink sink = new DataSink(10, 20);
+        sink.setResultPath(file.toString());
+
+        PipelineRunner runner = runner(sink);
+        runner.start();
+        runner.join();
+
+        assertEquals(IMAGES, Files.readAllLines(file).size());
+    }
+
+    @Test(timeout = 20000)
+    public void aFailingFinalFlushFailsThePipeline() throws Exception {
+        Assume.assumeTrue(new File("/dev/full").exists());     // every write fails with "no space left"
+        DataSink sink = new DataSink(10, 20);
+        sink.setResultPath("/dev/full");
+
+        PipelineRunner runner = runner(sink);
+        runner.start();
+        try {
+            runner.join();
+            fail("the results could not be written");
+        } catch (StreamCorruptedException expected) {
+        }
+        assertFalse(sink.hasCompleted());
+    }
+}
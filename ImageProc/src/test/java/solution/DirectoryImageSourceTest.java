@@ -0,0 +1,135 @@
+package solution;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pmp.interfaces.Writeable;
+
+import javax.media.jai.PlanarImage;
+import java.awt.image.BufferedImage;
+import java.io.StreamCorruptedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DirectoryImageSourceTest {
+
+    private static final int FILES = 40;
+    private static final int PREFETCH = 3;
+
+    @Rule
+    public TemporaryFolder m_Folder = new TemporaryFolder();
+
+    /*
+     * "decodes" a file into a tiny image after a random delay and counts the decodes not read yet
+     */
+    private static class FakeDecoding extends DirectoryImageSource {
+        final Map<PlanarImage, String> m_Names = new ConcurrentHashMap<PlanarImage, String>();
+        final AtomicInteger m_Outstanding = new AtomicInteger();
+        final AtomicInteger m_MaxOutstanding = new AtomicInteger();
+        final AtomicInteger m_Decoding = new AtomicInteger();
+        final AtomicInteger m_MaxDecoding = new AtomicInteger();
+        private final Random m_Random = new Random(42);
+
+        FakeDecoding(Path directory, int decodeThreads) {
+            super(directory, "*.img", decodeThreads, PREFETCH);
+        }
+
+        @Override
+        protected PlanarImage decode(Path file) {
+            max(m_MaxOutstanding, m_Outstanding.incrementAndGet());
+            max(m_MaxDecoding, m_Decoding.incrementAndGet());
+            try {
+                Thread.sleep(m_Random.nextInt(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();     // cancelled
+            } finally {
+                m_Decoding.decrementAndGet();
+            }
+            PlanarImage image = PlanarImage.wrapRenderedImage(new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_GRAY));
+            m_Names.put(image, file.getFileName().toString());
+            return image;
+        }
+
+        @Override
+        public synchronized PlanarImage read() throws StreamCorruptedException {
+            PlanarImage image = super.read();
+            if (image != null) {
+                m_Outstanding.decrementAndGet();
+            }
+            return image;
+        }
+
+        private static void max(AtomicInteger max, int value) {
+            int current;
+            while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+                // retry
+            }
+        }
+    }
+
+    private List<String> createFiles() throws Exception {
+        List<String> names = new ArrayList<String>();
+        for (int i = 0; i < FILES; i++) {
+            names.add(String.format("frame%03d.img", i));
+        }
+        List<String> shuffled = new ArrayList<String>(names);
+        Collections.shuffle(shuffled, new Random(7));
+        for (String name : shuffled) {
+            Files.createFile(m_Folder.getRoot().toPath().resolve(name));
+        }
+        Files.createFile(m_Folder.getRoot().toPath().resolve("notes.txt"));
+        return names;
+    }
+
+    @Test(timeout = 20000)
+    public void passesTheImagesOnInNameOrderWithABoundedPrefetch() throws Exception {
+        List<String> names = createFiles();
+        FakeDecoding source = new FakeDecoding(m_Folder.getRoot().toPath(), 4);
+
+        List<String> read = new ArrayList<String>();
+        PlanarImage image;
+        while ((image = source.read()) != null) {
+            read.add(source.m_Names.get(image));
+            Thread.sleep(1);
+        }
+
+        assertEquals(names, read);
+        assertTrue("outstanding decodes: " + source.m_MaxOutstanding.get(), source.m_MaxOutstanding.get() <= PREFETCH);
+        assertTrue("parallel decodes: " + source.m_MaxDecoding.get(), source.m_MaxDecoding.get() > 1);
+        assertNull(source.read());
+    }
+
+    @Test(timeout = 20000)
+    public void stopsDecodingWhenTheOutputFails() throws Exception {
+        createFiles();
+        FakeDecoding source = new FakeDecoding(m_Folder.getRoot().toPath(), 2);
+        AtomicInteger written = new AtomicInteger();
+        source.setOutput(new Writeable<PlanarImage>() {
+            public void write(PlanarImage value) throws StreamCorruptedException {
+                if (written.incrementAndGet() == 5) {
+                    throw new StreamCorruptedException("downstream failed");
+                }
+            }
+        });
+
+        source.run();
+        Thread.sleep(100);
+
+        assertEquals(5, written.get());
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            assertFalse("decode thread still running", thread.getName().startsWith("pmp-decode-" + m_Folder.getRoot().getName()));
+        }
+    }
+}